@@ -0,0 +1,713 @@
+package fi.helsinki.chessai.board;
+
+import fi.helsinki.chessai.board.pieces.Bishop;
+import fi.helsinki.chessai.board.pieces.King;
+import fi.helsinki.chessai.board.pieces.Knight;
+import fi.helsinki.chessai.board.pieces.Pawn;
+import fi.helsinki.chessai.board.pieces.Piece;
+import fi.helsinki.chessai.board.pieces.Queen;
+import fi.helsinki.chessai.board.pieces.Rook;
+import fi.helsinki.chessai.player.Side;
+import fi.helsinki.chessai.utility.AttackTables;
+import fi.helsinki.chessai.utility.MagicBitboards;
+
+/**
+ * Bitboard representation of a chess position for the engine.
+ * Every piece type of both sides has its own 64-bit set where bit n is on when
+ * the piece stands on tile n. Tiles are numbered like in Board (0 = A8, 63 = H1).
+ * @author janne
+ */
+public final class BitBoard {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+
+    /**
+     * Game phase of the starting position. The phase falls towards 0 as knights, bishops, rooks and queens are captured.
+     */
+    public static final int MAX_PHASE = 24;
+
+    private static final int MAX_PLY = 256;
+    private static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+
+    private final long[] pieces;
+    private final long[] sideOccupancy;
+    private long occupied;
+    private final int[] mailbox;
+    private final int[] material;
+    private final int[] middlegameScore;
+    private final int[] endgameScore;
+    private int phase;
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantSquare;
+    private int castled;
+    private int ply;
+    private int reversibleMoves;
+    private long zobristKey;
+    private final int[] undoCastlingRights;
+    private final int[] undoEnPassant;
+    private final int[] undoCastled;
+    private final long[] undoZobristKey;
+    private final int[] undoReversibleMoves;
+
+    /**
+     * Constructor for an empty position.
+     */
+    private BitBoard() {
+        this.pieces = new long[12];
+        this.sideOccupancy = new long[2];
+        this.mailbox = new int[64];
+        this.material = new int[2];
+        this.middlegameScore = new int[2];
+        this.endgameScore = new int[2];
+        this.undoCastlingRights = new int[MAX_PLY];
+        this.undoEnPassant = new int[MAX_PLY];
+        this.undoCastled = new int[MAX_PLY];
+        this.undoZobristKey = new long[MAX_PLY];
+        this.undoReversibleMoves = new int[MAX_PLY];
+        for (int i = 0; i < 64; i++) {
+            this.mailbox[i] = NO_PIECE;
+        }
+        this.sideToMove = WHITE;
+        this.enPassantSquare = NO_SQUARE;
+    }
+
+    /**
+     * Returns a copy of the position that can be searched independently, for example by another thread.
+     * @return
+     */
+    public BitBoard copy() {
+        final BitBoard position = new BitBoard();
+        System.arraycopy(this.pieces, 0, position.pieces, 0, this.pieces.length);
+        System.arraycopy(this.sideOccupancy, 0, position.sideOccupancy, 0, this.sideOccupancy.length);
+        System.arraycopy(this.mailbox, 0, position.mailbox, 0, this.mailbox.length);
+        System.arraycopy(this.material, 0, position.material, 0, this.material.length);
+        System.arraycopy(this.middlegameScore, 0, position.middlegameScore, 0, this.middlegameScore.length);
+        System.arraycopy(this.endgameScore, 0, position.endgameScore, 0, this.endgameScore.length);
+        System.arraycopy(this.undoCastlingRights, 0, position.undoCastlingRights, 0, this.ply);
+        System.arraycopy(this.undoEnPassant, 0, position.undoEnPassant, 0, this.ply);
+        System.arraycopy(this.undoCastled, 0, position.undoCastled, 0, this.ply);
+        System.arraycopy(this.undoZobristKey, 0, position.undoZobristKey, 0, this.ply);
+        System.arraycopy(this.undoReversibleMoves, 0, position.undoReversibleMoves, 0, this.ply);
+        position.occupied = this.occupied;
+        position.phase = this.phase;
+        position.sideToMove = this.sideToMove;
+        position.castlingRights = this.castlingRights;
+        position.enPassantSquare = this.enPassantSquare;
+        position.castled = this.castled;
+        position.ply = this.ply;
+        position.reversibleMoves = this.reversibleMoves;
+        position.zobristKey = this.zobristKey;
+        return position;
+    }
+
+    /**
+     * Creates the bitboard position of a game board. The keys of the game history of the board
+     * are put on the undo stack, so repetitions of earlier positions are found too.
+     * @param board
+     * @return
+     */
+    public static BitBoard fromBoard(final Board board) {
+        return fromBoard(board, board.currentPlayer().getSide());
+    }
+
+    /**
+     * Creates the bitboard position of a game board with the given side to move. When it is not the
+     * side to move on the game board, there is no en passant capture.
+     * @param board
+     * @param sideToMove
+     * @return
+     */
+    public static BitBoard fromBoard(final Board board, final Side sideToMove) {
+        final BitBoard position = new BitBoard();
+        for (final Piece piece : board.getAllPieces()) {
+            position.putPiece(pieceIndex(sideIndex(piece.getPieceSide()), piece.getPieceType().ordinal()), piece.getPosition());
+            if (piece.getPieceType() == Piece.PieceType.KING && ((King) piece).isCastled()) {
+                position.castled |= 1 << sideIndex(piece.getPieceSide());
+            }
+        }
+        position.sideToMove = sideIndex(sideToMove);
+        position.castlingRights = castlingRights(board);
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        if (enPassantPawn != null && sideToMove == board.currentPlayer().getSide()) {
+            position.enPassantSquare = enPassantPawn.getPosition() - enPassantPawn.getPieceSide().getDirection() * 8;
+        }
+        position.zobristKey = Zobrist.computeKey(position);
+        final long[] history = board.getHistory();
+        System.arraycopy(history, 0, position.undoZobristKey, 0, history.length);
+        position.ply = history.length;
+        position.reversibleMoves = history.length;
+        return position;
+    }
+
+    /**
+     * Returns the castling rights of a game board from the pieces that have not moved.
+     * @param board
+     * @return
+     */
+    static int castlingRights(final Board board) {
+        return castlingRight(board, 60, 63, WHITE_KING_SIDE)
+                | castlingRight(board, 60, 56, WHITE_QUEEN_SIDE)
+                | castlingRight(board, 4, 7, BLACK_KING_SIDE)
+                | castlingRight(board, 4, 0, BLACK_QUEEN_SIDE);
+    }
+
+    /**
+     * Returns the castling right if the king and the rook are both unmoved on their starting tiles.
+     * @param board
+     * @param kingSquare
+     * @param rookSquare
+     * @param right
+     * @return
+     */
+    private static int castlingRight(final Board board, final int kingSquare, final int rookSquare, final int right) {
+        final Piece king = board.getTile(kingSquare).getPiece();
+        final Piece rook = board.getTile(rookSquare).getPiece();
+        if (king == null || rook == null || king.getPieceSide() != rook.getPieceSide()) {
+            return 0;
+        }
+        if (king.getPieceType() != Piece.PieceType.KING || rook.getPieceType() != Piece.PieceType.ROOK) {
+            return 0;
+        }
+        return king.isFirstMove() && rook.isFirstMove() ? right : 0;
+    }
+
+    /**
+     * Builds a game board of the position.
+     * @return
+     */
+    public Board toBoard() {
+        final Board.Builder builder = new Board.Builder();
+        Pawn enPassantPawn = null;
+        final int enPassantPawnSquare = this.enPassantSquare == NO_SQUARE ? NO_SQUARE
+                : this.enPassantSquare + toSide(this.sideToMove ^ 1).getDirection() * 8;
+        for (int square = 0; square < 64; square++) {
+            if (this.mailbox[square] != NO_PIECE) {
+                final Piece piece = createPiece(this.mailbox[square], square);
+                if (square == enPassantPawnSquare) {
+                    enPassantPawn = (Pawn) piece;
+                }
+                builder.setPiece(piece);
+            }
+        }
+        builder.setMoveMaker(toSide(this.sideToMove));
+        builder.setEnPassantPawn(enPassantPawn);
+        return builder.build();
+    }
+
+    /**
+     * Creates the piece object of a piece on a tile.
+     * @param piece
+     * @param square
+     * @return
+     */
+    private Piece createPiece(final int piece, final int square) {
+        final int side = sideOf(piece);
+        final Side pieceSide = toSide(side);
+        switch (typeOf(piece)) {
+            case PAWN:
+                return new Pawn(square, pieceSide, side == WHITE ? square >= 48 && square < 56 : square >= 8 && square < 16);
+            case KNIGHT:
+                return new Knight(square, pieceSide, false);
+            case BISHOP:
+                return new Bishop(square, pieceSide, false);
+            case ROOK:
+                return new Rook(square, pieceSide, (this.castlingRights & rookRight(square)) != 0);
+            case QUEEN:
+                return new Queen(square, pieceSide, false);
+            default:
+                final int rights = side == WHITE ? WHITE_KING_SIDE | WHITE_QUEEN_SIDE : BLACK_KING_SIDE | BLACK_QUEEN_SIDE;
+                return new King(square, pieceSide, (this.castlingRights & rights) != 0, hasCastled(side));
+        }
+    }
+
+    /**
+     * Returns the castling right that belongs to a rook on its starting tile.
+     * @param square
+     * @return
+     */
+    static int rookRight(final int square) {
+        switch (square) {
+            case 63:
+                return WHITE_KING_SIDE;
+            case 56:
+                return WHITE_QUEEN_SIDE;
+            case 7:
+                return BLACK_KING_SIDE;
+            case 0:
+                return BLACK_QUEEN_SIDE;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Makes a packed move on the position. The previous state is saved on the undo stack
+     * so unmakeMove can restore it without building a new position.
+     * @param move
+     */
+    public void makeMove(final int move) {
+        final int from = PackedMove.getFrom(move);
+        final int to = PackedMove.getTo(move);
+        final int piece = PackedMove.getMovedPiece(move);
+        final int captured = PackedMove.getCapturedPiece(move);
+        final int flag = PackedMove.getFlag(move);
+        final int side = sideOf(piece);
+        this.undoCastlingRights[this.ply] = this.castlingRights;
+        this.undoEnPassant[this.ply] = this.enPassantSquare;
+        this.undoCastled[this.ply] = this.castled;
+        this.undoZobristKey[this.ply] = this.zobristKey;
+        this.undoReversibleMoves[this.ply] = this.reversibleMoves;
+        this.ply++;
+        this.reversibleMoves = captured != NO_PIECE || typeOf(piece) == PAWN ? 0 : this.reversibleMoves + 1;
+        if (flag == PackedMove.EN_PASSANT) {
+            removePiece(captured, enPassantCaptureSquare(to, side));
+        } else if (captured != NO_PIECE) {
+            removePiece(captured, to);
+        }
+        removePiece(piece, from);
+        putPiece(flag == PackedMove.PROMOTION ? PackedMove.getPromotionPiece(move) : piece, to);
+        if (flag == PackedMove.CASTLE) {
+            final int rook = pieceIndex(side, ROOK);
+            removePiece(rook, castleRookStart(to));
+            putPiece(rook, castleRookDestination(to));
+            this.castled |= 1 << side;
+        }
+        this.zobristKey ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.castling(this.castlingRights) ^ Zobrist.sideToMove();
+        this.enPassantSquare = flag == PackedMove.DOUBLE_PAWN_PUSH ? (from + to) / 2 : NO_SQUARE;
+        this.castlingRights &= ~(lostCastlingRights(from) | lostCastlingRights(to));
+        this.zobristKey ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.castling(this.castlingRights);
+        this.sideToMove ^= 1;
+    }
+
+    /**
+     * Takes back the latest move made with makeMove.
+     * @param move
+     */
+    public void unmakeMove(final int move) {
+        final int from = PackedMove.getFrom(move);
+        final int to = PackedMove.getTo(move);
+        final int piece = PackedMove.getMovedPiece(move);
+        final int captured = PackedMove.getCapturedPiece(move);
+        final int flag = PackedMove.getFlag(move);
+        final int side = sideOf(piece);
+        this.ply--;
+        this.sideToMove ^= 1;
+        removePiece(this.mailbox[to], to);
+        putPiece(piece, from);
+        if (captured != NO_PIECE) {
+            putPiece(captured, flag == PackedMove.EN_PASSANT ? enPassantCaptureSquare(to, side) : to);
+        }
+        if (flag == PackedMove.CASTLE) {
+            final int rook = pieceIndex(side, ROOK);
+            removePiece(rook, castleRookDestination(to));
+            putPiece(rook, castleRookStart(to));
+        }
+        this.castlingRights = this.undoCastlingRights[this.ply];
+        this.enPassantSquare = this.undoEnPassant[this.ply];
+        this.castled = this.undoCastled[this.ply];
+        this.zobristKey = this.undoZobristKey[this.ply];
+        this.reversibleMoves = this.undoReversibleMoves[this.ply];
+    }
+
+    /**
+     * Passes the turn to the other side without moving a piece. Used by the null move pruning of the search.
+     */
+    public void makeNullMove() {
+        this.undoCastlingRights[this.ply] = this.castlingRights;
+        this.undoEnPassant[this.ply] = this.enPassantSquare;
+        this.undoCastled[this.ply] = this.castled;
+        this.undoZobristKey[this.ply] = this.zobristKey;
+        this.undoReversibleMoves[this.ply] = this.reversibleMoves;
+        this.ply++;
+        this.reversibleMoves = 0;
+        this.zobristKey ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.sideToMove();
+        this.enPassantSquare = NO_SQUARE;
+        this.sideToMove ^= 1;
+    }
+
+    /**
+     * Takes back the latest null move.
+     */
+    public void unmakeNullMove() {
+        this.ply--;
+        this.sideToMove ^= 1;
+        this.enPassantSquare = this.undoEnPassant[this.ply];
+        this.zobristKey = this.undoZobristKey[this.ply];
+        this.reversibleMoves = this.undoReversibleMoves[this.ply];
+    }
+
+    /**
+     * Returns true if the position has been reached before on the search path or in the game.
+     * Only the positions after the last pawn move, capture or null move can repeat, and of them
+     * only every other one has the same side to move.
+     * @return
+     */
+    public boolean isRepetition() {
+        for (int back = 4; back <= this.reversibleMoves; back += 2) {
+            if (this.undoZobristKey[this.ply - back] == this.zobristKey) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the side has a piece other than pawns and the king.
+     * @param side
+     * @return
+     */
+    public boolean hasNonPawnMaterial(final int side) {
+        return (this.sideOccupancy[side] & ~this.pieces[pieceIndex(side, PAWN)] & ~this.pieces[pieceIndex(side, KING)]) != 0;
+    }
+
+    /**
+     * Returns the tile of the pawn that is captured en passant.
+     * @param to
+     * @param side side of the capturing pawn
+     * @return
+     */
+    static int enPassantCaptureSquare(final int to, final int side) {
+        return side == WHITE ? to + 8 : to - 8;
+    }
+
+    /**
+     * Returns the starting tile of the rook in a castle move.
+     * @param kingDestination
+     * @return
+     */
+    static int castleRookStart(final int kingDestination) {
+        return kingDestination % 8 == 6 ? kingDestination + 1 : kingDestination - 2;
+    }
+
+    /**
+     * Returns the destination of the rook in a castle move.
+     * @param kingDestination
+     * @return
+     */
+    static int castleRookDestination(final int kingDestination) {
+        return kingDestination % 8 == 6 ? kingDestination - 1 : kingDestination + 1;
+    }
+
+    /**
+     * Returns the castling rights lost when a piece moves from or to a tile.
+     * @param square
+     * @return
+     */
+    static int lostCastlingRights(final int square) {
+        if (square == 60) {
+            return WHITE_KING_SIDE | WHITE_QUEEN_SIDE;
+        }
+        if (square == 4) {
+            return BLACK_KING_SIDE | BLACK_QUEEN_SIDE;
+        }
+        return rookRight(square);
+    }
+
+    /**
+     * Returns true if a piece of the side attacks the tile.
+     * @param square
+     * @param bySide
+     * @return
+     */
+    public boolean isSquareAttacked(final int square, final int bySide) {
+        final long queens = this.pieces[pieceIndex(bySide, QUEEN)];
+        return (AttackTables.PAWN_ATTACKS[bySide ^ 1][square] & this.pieces[pieceIndex(bySide, PAWN)]) != 0
+                || (AttackTables.KNIGHT_ATTACKS[square] & this.pieces[pieceIndex(bySide, KNIGHT)]) != 0
+                || (AttackTables.KING_ATTACKS[square] & this.pieces[pieceIndex(bySide, KING)]) != 0
+                || (MagicBitboards.rookAttacks(square, this.occupied) & (this.pieces[pieceIndex(bySide, ROOK)] | queens)) != 0
+                || (MagicBitboards.bishopAttacks(square, this.occupied) & (this.pieces[pieceIndex(bySide, BISHOP)] | queens)) != 0;
+    }
+
+    /**
+     * Returns the pieces of both sides that attack the tile when the given tiles are occupied.
+     * Removing a piece from the occupied tiles reveals the sliders behind it.
+     * @param square
+     * @param occupiedSquares
+     * @return
+     */
+    public long attackersTo(final int square, final long occupiedSquares) {
+        final long rooks = this.pieces[pieceIndex(WHITE, ROOK)] | this.pieces[pieceIndex(BLACK, ROOK)];
+        final long bishops = this.pieces[pieceIndex(WHITE, BISHOP)] | this.pieces[pieceIndex(BLACK, BISHOP)];
+        final long queens = this.pieces[pieceIndex(WHITE, QUEEN)] | this.pieces[pieceIndex(BLACK, QUEEN)];
+        return (AttackTables.PAWN_ATTACKS[BLACK][square] & this.pieces[pieceIndex(WHITE, PAWN)])
+                | (AttackTables.PAWN_ATTACKS[WHITE][square] & this.pieces[pieceIndex(BLACK, PAWN)])
+                | (AttackTables.KNIGHT_ATTACKS[square] & (this.pieces[pieceIndex(WHITE, KNIGHT)] | this.pieces[pieceIndex(BLACK, KNIGHT)]))
+                | (AttackTables.KING_ATTACKS[square] & (this.pieces[pieceIndex(WHITE, KING)] | this.pieces[pieceIndex(BLACK, KING)]))
+                | (MagicBitboards.rookAttacks(square, occupiedSquares) & (rooks | queens))
+                | (MagicBitboards.bishopAttacks(square, occupiedSquares) & (bishops | queens));
+    }
+
+    /**
+     * Returns true if the king of the side is attacked.
+     * @param side
+     * @return
+     */
+    public boolean isInCheck(final int side) {
+        final int king = getKingSquare(side);
+        return king != NO_SQUARE && isSquareAttacked(king, side ^ 1);
+    }
+
+    /**
+     * Returns true if the side that made the last move did not leave its king in check.
+     * @return
+     */
+    public boolean isLegalPosition() {
+        return !isInCheck(this.sideToMove ^ 1);
+    }
+
+    /**
+     * Places a piece on an empty tile. The material and the piece-square scores of the side
+     * and the game phase are updated with the piece, so they never have to be counted from scratch.
+     * @param piece
+     * @param square
+     */
+    void putPiece(final int piece, final int square) {
+        final long bit = 1L << square;
+        final int side = sideOf(piece);
+        this.pieces[piece] |= bit;
+        this.sideOccupancy[side] |= bit;
+        this.occupied |= bit;
+        this.mailbox[square] = piece;
+        this.zobristKey ^= Zobrist.piece(piece, square);
+        this.material[side] += StaticExchange.pieceValue(typeOf(piece));
+        this.middlegameScore[side] += PieceSquareTables.middlegame(piece, square);
+        this.endgameScore[side] += PieceSquareTables.endgame(piece, square);
+        this.phase += PHASE_WEIGHTS[typeOf(piece)];
+    }
+
+    /**
+     * Removes a piece from a tile.
+     * @param piece
+     * @param square
+     */
+    void removePiece(final int piece, final int square) {
+        final long bit = ~(1L << square);
+        final int side = sideOf(piece);
+        this.pieces[piece] &= bit;
+        this.sideOccupancy[side] &= bit;
+        this.occupied &= bit;
+        this.mailbox[square] = NO_PIECE;
+        this.zobristKey ^= Zobrist.piece(piece, square);
+        this.material[side] -= StaticExchange.pieceValue(typeOf(piece));
+        this.middlegameScore[side] -= PieceSquareTables.middlegame(piece, square);
+        this.endgameScore[side] -= PieceSquareTables.endgame(piece, square);
+        this.phase -= PHASE_WEIGHTS[typeOf(piece)];
+    }
+
+    /**
+     * Returns the index of a piece in the piece bitboards.
+     * @param side
+     * @param type
+     * @return
+     */
+    public static int pieceIndex(final int side, final int type) {
+        return side * 6 + type;
+    }
+
+    /**
+     * Returns the side of a piece index.
+     * @param piece
+     * @return
+     */
+    public static int sideOf(final int piece) {
+        return piece / 6;
+    }
+
+    /**
+     * Returns the type of a piece index.
+     * @param piece
+     * @return
+     */
+    public static int typeOf(final int piece) {
+        return piece % 6;
+    }
+
+    /**
+     * Returns the side index of a side.
+     * @param side
+     * @return
+     */
+    public static int sideIndex(final Side side) {
+        return side.isWhite() ? WHITE : BLACK;
+    }
+
+    /**
+     * Returns the side of a side index.
+     * @param side
+     * @return
+     */
+    public static Side toSide(final int side) {
+        return side == WHITE ? Side.WHITE : Side.BLACK;
+    }
+
+    /**
+     * Returns the Zobrist key of the position.
+     * @return
+     */
+    public long getZobristKey() {
+        return this.zobristKey;
+    }
+
+    /**
+     * Returns the bitboard of a piece.
+     * @param piece
+     * @return
+     */
+    public long getPieces(final int piece) {
+        return this.pieces[piece];
+    }
+
+    /**
+     * Returns the bitboard of a piece type of one side.
+     * @param side
+     * @param type
+     * @return
+     */
+    public long getPieces(final int side, final int type) {
+        return this.pieces[pieceIndex(side, type)];
+    }
+
+    /**
+     * Returns the tiles occupied by one side.
+     * @param side
+     * @return
+     */
+    public long getSideOccupancy(final int side) {
+        return this.sideOccupancy[side];
+    }
+
+    /**
+     * Returns the total value of the pieces of the side.
+     * @param side
+     * @return
+     */
+    public int getMaterial(final int side) {
+        return this.material[side];
+    }
+
+    /**
+     * Returns the sum of the middlegame piece-square bonuses of the pieces of the side.
+     * @param side
+     * @return
+     */
+    public int getMiddlegameScore(final int side) {
+        return this.middlegameScore[side];
+    }
+
+    /**
+     * Returns the sum of the endgame piece-square bonuses of the pieces of the side.
+     * @param side
+     * @return
+     */
+    public int getEndgameScore(final int side) {
+        return this.endgameScore[side];
+    }
+
+    /**
+     * Returns the game phase from MAX_PHASE in the opening to 0 when only kings and pawns are left.
+     * Promotions can raise the phase above the starting phase, so it is capped.
+     * @return
+     */
+    public int getPhase() {
+        return Math.min(this.phase, MAX_PHASE);
+    }
+
+    /**
+     * Returns all occupied tiles.
+     * @return
+     */
+    public long getOccupied() {
+        return this.occupied;
+    }
+
+    /**
+     * Returns the piece on a tile or NO_PIECE if it is empty.
+     * @param square
+     * @return
+     */
+    public int pieceAt(final int square) {
+        return this.mailbox[square];
+    }
+
+    /**
+     * Returns the tile of the king of a side or NO_SQUARE if there is no king.
+     * @param side
+     * @return
+     */
+    public int getKingSquare(final int side) {
+        final long king = this.pieces[pieceIndex(side, KING)];
+        return king == 0 ? NO_SQUARE : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Returns the side whose turn it is.
+     * @return
+     */
+    public int getSideToMove() {
+        return this.sideToMove;
+    }
+
+    /**
+     * Returns the castling rights as a set of flags.
+     * @return
+     */
+    public int getCastlingRights() {
+        return this.castlingRights;
+    }
+
+    /**
+     * Returns the tile a pawn can capture en passant or NO_SQUARE.
+     * @return
+     */
+    public int getEnPassantSquare() {
+        return this.enPassantSquare;
+    }
+
+    /**
+     * Returns true if the king of the side has castled.
+     * @param side
+     * @return
+     */
+    public boolean hasCastled(final int side) {
+        return (this.castled & (1 << side)) != 0;
+    }
+
+    /**
+     * Represents the position as a String in the same format as Board.
+     * @return
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            String tileText = "-";
+            if (this.mailbox[i] != NO_PIECE) {
+                tileText = Piece.PieceType.values()[typeOf(this.mailbox[i])].toString();
+                if (sideOf(this.mailbox[i]) == BLACK) {
+                    tileText = tileText.toLowerCase();
+                }
+            }
+            builder.append(String.format("%3s", tileText));
+            if ((i + 1) % 8 == 0) {
+                builder.append("\n");
+            }
+        }
+        return builder.toString();
+    }
+}
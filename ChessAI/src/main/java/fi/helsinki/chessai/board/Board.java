@@ -5,6 +5,9 @@ import fi.helsinki.chessai.board.pieces.*;
 import fi.helsinki.chessai.player.BlackPlayer;
 import fi.helsinki.chessai.player.Player;
 import fi.helsinki.chessai.player.WhitePlayer;
+import fi.helsinki.chessai.utility.AttackTables;
+import fi.helsinki.chessai.utility.BoardUtility;
+import fi.helsinki.chessai.utility.MagicBitboards;
 import fi.helsinki.chessai.utility.MyList;
 
 /**
@@ -12,6 +15,9 @@ import fi.helsinki.chessai.utility.MyList;
  * @author janne
  */
 public final class Board {
+    private static final int MAX_HISTORY = 100;
+    private static final long[] NO_HISTORY = new long[0];
+    
     private final MyList<Tile> gameboard;
     private final MyList<Piece> whitePieces;
     private final MyList<Piece> blackPieces;
@@ -19,6 +25,10 @@ public final class Board {
     private final BlackPlayer blackPlayer;
     private final Player currentPlayer;
     private final Pawn enPassantPawn;
+    private final long occupied;
+    private final long[] pieceTiles;
+    private final long zobristKey;
+    private final long[] history;
     
     /**
      * Constructor utilizing the builder class.
@@ -26,14 +36,16 @@ public final class Board {
      */
     private Board(final Builder builder) {
         this.gameboard = createBoard(builder);
+        this.occupied = occupiedTiles(builder);
+        this.pieceTiles = pieceTiles(builder);
         this.enPassantPawn = builder.enPassantPawn;
         this.whitePieces = activePieces(this.gameboard, Side.WHITE);
         this.blackPieces = activePieces(this.gameboard, Side.BLACK);
-        final MyList<Move> whiteLegalMoves = legalMovesForPieces(this.whitePieces);
-        final MyList<Move> blackLegalMoves = legalMovesForPieces(this.blackPieces);
-        this.whitePlayer = new WhitePlayer(this, whiteLegalMoves, blackLegalMoves);
-        this.blackPlayer = new BlackPlayer(this, blackLegalMoves, whiteLegalMoves);
+        this.whitePlayer = new WhitePlayer(this);
+        this.blackPlayer = new BlackPlayer(this);
         this.currentPlayer = builder.nextMoveMaker.choosePlayer(this.whitePlayer, this.blackPlayer);
+        this.zobristKey = builder.zobristKey != null ? builder.zobristKey : Zobrist.computeKey(this);
+        this.history = builder.history;
     }
     
     /**
@@ -61,6 +73,32 @@ public final class Board {
         return list;
     }
     
+    /**
+     * Bitboard of the occupied tiles, bit n being tile n.
+     * @param builder
+     * @return 
+     */
+    private static long occupiedTiles(final Builder builder) {
+        long tiles = 0;
+        for(Piece piece : builder.boardConfig) {
+            tiles |= 1L << piece.getPosition();
+        }
+        return tiles;
+    }
+    
+    /**
+     * Bitboards of the tiles of every piece type of both sides, indexed like the pieces of BitBoard.
+     * @param builder
+     * @return 
+     */
+    private static long[] pieceTiles(final Builder builder) {
+        final long[] tiles = new long[12];
+        for(Piece piece : builder.boardConfig) {
+            tiles[BitBoard.pieceIndex(BitBoard.sideIndex(piece.getPieceSide()), piece.getPieceType().ordinal())] |= 1L << piece.getPosition();
+        }
+        return tiles;
+    }
+    
     /**
      * Creates the standard chess game board with the pieces.
      * @return the game board
@@ -138,23 +176,11 @@ public final class Board {
      * @return 
      */
     public MyList<Move> getAllLegalMoves() {
-        MyList<Move> list = this.whitePlayer.getLegalMoves();
+        final MyList<Move> list = new MyList<>();
+        list.addAll(this.whitePlayer.getLegalMoves());
         list.addAll(this.blackPlayer.getLegalMoves());
         return list;
     }    
-    
-    /**
-     * Gives the list of possible legal moves.
-     * @param pieces
-     * @return 
-     */
-    private MyList<Move> legalMovesForPieces(MyList<Piece> pieces) {
-        final MyList<Move> legalMoves = new MyList<>(); 
-        for (final Piece piece : pieces) {
-            legalMoves.addAll(piece.getLegalMoves(this));
-        }
-        return legalMoves;
-    }
 
     /**
      * Returns the white player.
@@ -188,6 +214,95 @@ public final class Board {
         return this.enPassantPawn;
     }
     
+    /**
+     * Returns the occupied tiles as a bitboard.
+     * @return 
+     */
+    public long getOccupied() {
+        return this.occupied;
+    }
+    
+    /**
+     * Returns the pieces of both sides that attack a tile as a bitboard.
+     * The attacks are looked up backwards from the tile, so no moves are generated.
+     * @param tileCoordinate
+     * @return 
+     */
+    public long attackersTo(final int tileCoordinate) {
+        if(!BoardUtility.isValidTile(tileCoordinate)) {
+            return 0;
+        }
+        return attackers(tileCoordinate, BitBoard.WHITE) | attackers(tileCoordinate, BitBoard.BLACK);
+    }
+    
+    /**
+     * Returns true if a piece of the side attacks the tile.
+     * @param tileCoordinate
+     * @param bySide
+     * @return 
+     */
+    public boolean isSquareAttacked(final int tileCoordinate, final Side bySide) {
+        return BoardUtility.isValidTile(tileCoordinate) && attackers(tileCoordinate, BitBoard.sideIndex(bySide)) != 0;
+    }
+    
+    /**
+     * Returns the pieces of one side that attack a tile.
+     * @param tileCoordinate
+     * @param side side index of BitBoard
+     * @return 
+     */
+    private long attackers(final int tileCoordinate, final int side) {
+        final long queens = this.pieceTiles[BitBoard.pieceIndex(side, BitBoard.QUEEN)];
+        return (AttackTables.PAWN_ATTACKS[side ^ 1][tileCoordinate] & this.pieceTiles[BitBoard.pieceIndex(side, BitBoard.PAWN)])
+                | (AttackTables.KNIGHT_ATTACKS[tileCoordinate] & this.pieceTiles[BitBoard.pieceIndex(side, BitBoard.KNIGHT)])
+                | (AttackTables.KING_ATTACKS[tileCoordinate] & this.pieceTiles[BitBoard.pieceIndex(side, BitBoard.KING)])
+                | (MagicBitboards.rookAttacks(tileCoordinate, this.occupied) & (this.pieceTiles[BitBoard.pieceIndex(side, BitBoard.ROOK)] | queens))
+                | (MagicBitboards.bishopAttacks(tileCoordinate, this.occupied) & (this.pieceTiles[BitBoard.pieceIndex(side, BitBoard.BISHOP)] | queens));
+    }
+    
+    /**
+     * Returns the Zobrist key of the position.
+     * @return 
+     */
+    public long getZobristKey() {
+        return this.zobristKey;
+    }
+    
+    /**
+     * Returns the Zobrist keys of the earlier positions since the last pawn move or capture, oldest first.
+     * @return 
+     */
+    long[] getHistory() {
+        return this.history;
+    }
+    
+    /**
+     * Returns the history of the board after a move that is not a pawn move or a capture:
+     * the history of this board and the key of this board, at most MAX_HISTORY keys.
+     * @return 
+     */
+    long[] historyAfterReversibleMove() {
+        final int length = Math.min(this.history.length + 1, MAX_HISTORY);
+        final long[] keys = new long[length];
+        System.arraycopy(this.history, this.history.length - length + 1, keys, 0, length - 1);
+        keys[length - 1] = this.zobristKey;
+        return keys;
+    }
+    
+    /**
+     * Returns true if the position has been on the board twice before with the same side to move.
+     * @return 
+     */
+    public boolean isDrawByRepetition() {
+        int count = 0;
+        for(int i = this.history.length - 2; i >= 0; i -= 2) {
+            if(this.history[i] == this.zobristKey) {
+                count++;
+            }
+        }
+        return count >= 2;
+    }
+    
     /**
      * Returns all the pieces currently on the board.
      * @return 
@@ -212,9 +327,12 @@ public final class Board {
         private MyList<Piece> boardConfig;
         private Side nextMoveMaker;
         private Pawn enPassantPawn;
+        private Long zobristKey;
+        private long[] history;
         
         public Builder() {
             this.boardConfig = new MyList<>();
+            this.history = NO_HISTORY;
         }
         /**
          * Place a piece on the game board.
@@ -246,6 +364,27 @@ public final class Board {
             return this;
         }
         
+        /**
+         * Sets the Zobrist keys of the earlier positions since the last pawn move or capture, oldest first.
+         * @param history
+         * @return 
+         */
+        public Builder setHistory(final long[] history) {
+            this.history = history;
+            return this;
+        }
+        
+        /**
+         * Sets the Zobrist key when it is updated from the previous board.
+         * Without it the key is computed from the pieces.
+         * @param zobristKey
+         * @return 
+         */
+        public Builder setZobristKey(final long zobristKey) {
+            this.zobristKey = zobristKey;
+            return this;
+        }
+        
         public Board build() {
             return new Board(this);
         }
@@ -4,6 +4,7 @@ import fi.helsinki.chessai.board.Board.Builder;
 import fi.helsinki.chessai.board.pieces.Pawn;
 import fi.helsinki.chessai.board.pieces.Piece;
 import fi.helsinki.chessai.board.pieces.Rook;
+import fi.helsinki.chessai.player.Player;
 import fi.helsinki.chessai.utility.BoardUtility;
 
 /**
@@ -100,6 +101,10 @@ public abstract class Move {
         setPiecesOnNewBuild(builder, this);
         builder.setPiece(this.movedPiece.movePiece(this));
         builder.setMoveMaker(this.board.currentPlayer().getOpponent().getSide());
+        builder.setZobristKey(Zobrist.keyAfterMove(this.board, this));
+        if(this.movedPiece.getPieceType() != Piece.PieceType.PAWN && !(this instanceof AttackMove)) {
+            builder.setHistory(this.board.historyAfterReversibleMove());
+        }
         return builder.build();
     }
     
@@ -142,6 +147,7 @@ public abstract class Move {
             final Pawn movedPawn = (Pawn) this.movedPiece.movePiece(this);
             builder.setPiece(movedPawn);
             builder.setMoveMaker(this.board.currentPlayer().getOpponent().getSide());
+            builder.setZobristKey(Zobrist.keyAfterMove(this.board, this));
             return builder.build();
         }
     }  
@@ -162,6 +168,7 @@ public abstract class Move {
             builder.setPiece(movedPawn);
             builder.setEnPassantPawn(movedPawn);
             builder.setMoveMaker(this.board.currentPlayer().getOpponent().getSide());
+            builder.setZobristKey(Zobrist.keyAfterMove(this.board, this));
             return builder.build();
         }
     }    
@@ -187,6 +194,7 @@ public abstract class Move {
             setPiecesOnNewBuild(builder, this);
             builder.setPiece(this.promotedPawn.getPromotionPiece().movePiece(this));
             builder.setMoveMaker(pawnMovedBoard.currentPlayer().getSide());
+            builder.setZobristKey(Zobrist.keyAfterMove(this.board, this));
             return builder.build();
         }
     }
@@ -221,6 +229,8 @@ public abstract class Move {
             builder.setPiece(this.movedPiece.movePiece(this));
             builder.setPiece(new Rook(this.rookDestination, this.rook.getPieceSide(), false));
             builder.setMoveMaker(this.board.currentPlayer().getOpponent().getSide());
+            builder.setZobristKey(Zobrist.keyAfterMove(this.board, this));
+            builder.setHistory(this.board.historyAfterReversibleMove());
             return builder.build();
         } 
     }
@@ -260,7 +270,11 @@ public abstract class Move {
          * @return
          */
         public static Move createMove(final Board board, final int currentCoordinate, final int destinationCoordinate) {
-            for(Move move : board.getAllLegalMoves()) {
+            if(!BoardUtility.isValidTile(currentCoordinate) || !board.getTile(currentCoordinate).occupied()) {
+                return NULL_MOVE;
+            }
+            final Player player = board.getTile(currentCoordinate).getPiece().getPieceSide().isWhite() ? board.getWhitePlayer() : board.getBlackPlayer();
+            for(Move move : player.getLegalMoves()) {
                 if(move.getCurrentPosition() == currentCoordinate && move.getDestination() == destinationCoordinate) {
                     return move;
                 }
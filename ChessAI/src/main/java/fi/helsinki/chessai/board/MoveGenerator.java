@@ -0,0 +1,327 @@
+package fi.helsinki.chessai.board;
+
+import fi.helsinki.chessai.utility.AttackTables;
+import fi.helsinki.chessai.utility.BoardUtility;
+import fi.helsinki.chessai.utility.MagicBitboards;
+
+/**
+ * Generates the moves of a BitBoard position as packed moves.
+ * The pseudo legal moves are like the moves of Player, so the king can be left in check.
+ * The legal moves are filtered with the checking pieces and the pinned pieces, which are found
+ * once per position, so no move has to be made to see that it leaves the king in check.
+ * @author janne
+ */
+public final class MoveGenerator {
+    public static final int MAX_MOVES = 256;
+
+    private MoveGenerator() {
+        throw new RuntimeException("Utility class only");
+    }
+
+    /**
+     * Writes all the pseudo legal moves of a side to the array.
+     * @param position
+     * @param side
+     * @param moves array of at least MAX_MOVES elements
+     * @return number of moves written
+     */
+    public static int generateMoves(final BitBoard position, final int side, final int[] moves) {
+        return generate(position, side, moves, false);
+    }
+
+    /**
+     * Writes the pseudo legal captures and promotions of a side to the array for the quiescence search.
+     * @param position
+     * @param side
+     * @param moves array of at least MAX_MOVES elements
+     * @return number of moves written
+     */
+    public static int generateCaptures(final BitBoard position, final int side, final int[] moves) {
+        return generate(position, side, moves, true);
+    }
+
+    /**
+     * Writes the legal moves of the side to move to the array.
+     * @param position
+     * @param moves array of at least MAX_MOVES elements
+     * @return number of moves written
+     */
+    public static int generateLegalMoves(final BitBoard position, final int[] moves) {
+        return removeIllegalMoves(position, moves, generate(position, position.getSideToMove(), moves, false));
+    }
+
+    /**
+     * Writes the legal captures and promotions of the side to move to the array.
+     * @param position
+     * @param moves array of at least MAX_MOVES elements
+     * @return number of moves written
+     */
+    public static int generateLegalCaptures(final BitBoard position, final int[] moves) {
+        return removeIllegalMoves(position, moves, generate(position, position.getSideToMove(), moves, true));
+    }
+
+    /**
+     * Removes the pseudo legal moves of the side to move that leave its king in check and keeps the order of the others.
+     * A pinned piece can only move along the line of its pin.
+     * @param position
+     * @param moves
+     * @param count number of pseudo legal moves
+     * @return number of legal moves
+     */
+    private static int removeIllegalMoves(final BitBoard position, final int[] moves, final int count) {
+        final int side = position.getSideToMove();
+        final int king = position.getKingSquare(side);
+        if (king == BitBoard.NO_SQUARE) {
+            return count;
+        }
+        final long checkMask = checkMask(position, side, king);
+        final long pinned = pinnedPieces(position, side, king);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            if (isLegal(position, moves[i], king, checkMask, pinned)) {
+                moves[legal++] = moves[i];
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Returns true if a pseudo legal move of the side to move doesn't leave its king in check.
+     * @param position
+     * @param move
+     * @return
+     */
+    public static boolean isLegalMove(final BitBoard position, final int move) {
+        final int side = position.getSideToMove();
+        final int king = position.getKingSquare(side);
+        return king == BitBoard.NO_SQUARE || isLegal(position, move, king, checkMask(position, side, king), pinnedPieces(position, side, king));
+    }
+
+    /**
+     * Returns the tiles a piece other than the king can move to: every tile when the king is not in check,
+     * the checking piece and the tiles between it and the king in check and no tile in double check.
+     * @param position
+     * @param side
+     * @param king tile of the king
+     * @return
+     */
+    private static long checkMask(final BitBoard position, final int side, final int king) {
+        final long checkers = position.attackersTo(king, position.getOccupied()) & position.getSideOccupancy(side ^ 1);
+        if (checkers == 0) {
+            return -1L;
+        }
+        if ((checkers & (checkers - 1)) != 0) {
+            return 0;
+        }
+        return checkers | AttackTables.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+    }
+
+    /**
+     * Returns the pieces of the side that are the only piece between their king and an enemy slider.
+     * @param position
+     * @param side
+     * @param king tile of the king
+     * @return
+     */
+    private static long pinnedPieces(final BitBoard position, final int side, final int king) {
+        final int opponent = side ^ 1;
+        final long opponentPieces = position.getSideOccupancy(opponent);
+        final long queens = position.getPieces(opponent, BitBoard.QUEEN);
+        long snipers = (MagicBitboards.rookAttacks(king, opponentPieces) & (position.getPieces(opponent, BitBoard.ROOK) | queens))
+                | (MagicBitboards.bishopAttacks(king, opponentPieces) & (position.getPieces(opponent, BitBoard.BISHOP) | queens));
+        long pinned = 0;
+        while (snipers != 0) {
+            final int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            final long between = AttackTables.BETWEEN[king][sniper] & position.getOccupied();
+            if (between != 0 && (between & (between - 1)) == 0) {
+                pinned |= between & position.getSideOccupancy(side);
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Returns true if a pseudo legal move of the side to move doesn't leave its king in check.
+     * @param position
+     * @param move
+     * @param king tile of the king
+     * @param checkMask tiles a piece other than the king can move to
+     * @param pinned pinned pieces of the side to move
+     * @return
+     */
+    private static boolean isLegal(final BitBoard position, final int move, final int king, final long checkMask, final long pinned) {
+        final int from = PackedMove.getFrom(move);
+        final int to = PackedMove.getTo(move);
+        final int opponent = position.getSideToMove() ^ 1;
+        if (from == king) {
+            return PackedMove.getFlag(move) == PackedMove.CASTLE
+                    || (position.attackersTo(to, position.getOccupied() ^ 1L << king) & position.getSideOccupancy(opponent)) == 0;
+        }
+        if (PackedMove.getFlag(move) == PackedMove.EN_PASSANT) {
+            return isLegalEnPassant(position, from, to, king);
+        }
+        return (checkMask & 1L << to) != 0 && ((pinned & 1L << from) == 0 || (AttackTables.LINE[king][from] & 1L << to) != 0);
+    }
+
+    /**
+     * En passant removes two pawns from their tiles at once, so the king can be left open on the row of the
+     * pawns as well as on a diagonal. The capture is legal if no piece attacks the king after it.
+     * @param position
+     * @param from
+     * @param to
+     * @param king tile of the king
+     * @return
+     */
+    private static boolean isLegalEnPassant(final BitBoard position, final int from, final int to, final int king) {
+        final int side = position.getSideToMove();
+        final long captured = 1L << BitBoard.enPassantCaptureSquare(to, side);
+        final long occupied = (position.getOccupied() ^ 1L << from ^ captured) | 1L << to;
+        return (position.attackersTo(king, occupied) & position.getSideOccupancy(side ^ 1) & ~captured) == 0;
+    }
+
+    /**
+     * Writes the moves of a side to the array.
+     * @param position
+     * @param side
+     * @param moves
+     * @param capturesOnly true to leave out the quiet moves except promotions
+     * @return number of moves written
+     */
+    private static int generate(final BitBoard position, final int side, final int[] moves, final boolean capturesOnly) {
+        final long targets = capturesOnly ? position.getSideOccupancy(side ^ 1) : ~position.getSideOccupancy(side);
+        final long occupied = position.getOccupied();
+        int count = 0;
+        long own = position.getSideOccupancy(side);
+        while (own != 0) {
+            final int square = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            final int piece = position.pieceAt(square);
+            switch (BitBoard.typeOf(piece)) {
+                case BitBoard.PAWN:
+                    count = pawnMoves(position, side, square, moves, count, capturesOnly);
+                    break;
+                case BitBoard.KNIGHT:
+                    count = targetMoves(position, piece, square, AttackTables.KNIGHT_ATTACKS[square] & targets, moves, count);
+                    break;
+                case BitBoard.BISHOP:
+                    count = targetMoves(position, piece, square, MagicBitboards.bishopAttacks(square, occupied) & targets, moves, count);
+                    break;
+                case BitBoard.ROOK:
+                    count = targetMoves(position, piece, square, MagicBitboards.rookAttacks(square, occupied) & targets, moves, count);
+                    break;
+                case BitBoard.QUEEN:
+                    count = targetMoves(position, piece, square, MagicBitboards.queenAttacks(square, occupied) & targets, moves, count);
+                    break;
+                default:
+                    count = targetMoves(position, piece, square, AttackTables.KING_ATTACKS[square] & targets, moves, count);
+                    if (!capturesOnly) {
+                        count = castleMoves(position, side, moves, count);
+                    }
+                    break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns true if the side to move has at least one legal move.
+     * @param position
+     * @param buffer array of at least MAX_MOVES elements for the moves
+     * @return
+     */
+    public static boolean hasLegalMoves(final BitBoard position, final int[] buffer) {
+        return generateLegalMoves(position, buffer) > 0;
+    }
+
+    /**
+     * Moves of a pawn including promotions and en passant.
+     * @param position
+     * @param side
+     * @param square
+     * @param moves
+     * @param count
+     * @param capturesOnly true to leave out the pushes that don't promote
+     * @return
+     */
+    private static int pawnMoves(final BitBoard position, final int side, final int square, final int[] moves, int count, final boolean capturesOnly) {
+        final int forward = side == BitBoard.WHITE ? -8 : 8;
+        final int destination = square + forward;
+        if (!BoardUtility.isValidTile(destination)) {
+            return count;
+        }
+        final int pawn = BitBoard.pieceIndex(side, BitBoard.PAWN);
+        final boolean promotion = destination < 8 || destination >= 56;
+        final int promotionPiece = promotion ? BitBoard.pieceIndex(side, BitBoard.QUEEN) : BitBoard.NO_PIECE;
+        final int flag = promotion ? PackedMove.PROMOTION : PackedMove.QUIET;
+        if (position.pieceAt(destination) == BitBoard.NO_PIECE && (promotion || !capturesOnly)) {
+            moves[count++] = PackedMove.create(square, destination, pawn, BitBoard.NO_PIECE, promotionPiece, flag);
+            final boolean startRow = side == BitBoard.WHITE ? square >= 48 : square < 16;
+            if (startRow && position.pieceAt(destination + forward) == BitBoard.NO_PIECE) {
+                moves[count++] = PackedMove.create(square, destination + forward, pawn, BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.DOUBLE_PAWN_PUSH);
+            }
+        }
+        long attacks = AttackTables.PAWN_ATTACKS[side][square];
+        while (attacks != 0) {
+            final int attack = Long.numberOfTrailingZeros(attacks);
+            attacks &= attacks - 1;
+            final int target = position.pieceAt(attack);
+            if (target != BitBoard.NO_PIECE && BitBoard.sideOf(target) != side) {
+                moves[count++] = PackedMove.create(square, attack, pawn, target, promotionPiece, flag);
+            } else if (attack == position.getEnPassantSquare()) {
+                moves[count++] = PackedMove.create(square, attack, pawn, BitBoard.pieceIndex(side ^ 1, BitBoard.PAWN), BitBoard.NO_PIECE, PackedMove.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Moves of the pieces other than pawns to the tiles they attack.
+     * The attack sets come from the attack tables and the magic bitboards.
+     * @param position
+     * @param piece
+     * @param square
+     * @param targets attacked tiles the piece can move to
+     * @param moves
+     * @param count
+     * @return
+     */
+    private static int targetMoves(final BitBoard position, final int piece, final int square, long targets, final int[] moves, int count) {
+        while (targets != 0) {
+            final int destination = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = PackedMove.create(square, destination, piece, position.pieceAt(destination), BitBoard.NO_PIECE, PackedMove.QUIET);
+        }
+        return count;
+    }
+
+    /**
+     * Castle moves of a side. The king cannot castle out of or through check.
+     * @param position
+     * @param side
+     * @param moves
+     * @param count
+     * @return
+     */
+    private static int castleMoves(final BitBoard position, final int side, final int[] moves, int count) {
+        final int rights = position.getCastlingRights();
+        final int opponent = side ^ 1;
+        final int king = side == BitBoard.WHITE ? 60 : 4;
+        final int kingSide = side == BitBoard.WHITE ? BitBoard.WHITE_KING_SIDE : BitBoard.BLACK_KING_SIDE;
+        final int queenSide = side == BitBoard.WHITE ? BitBoard.WHITE_QUEEN_SIDE : BitBoard.BLACK_QUEEN_SIDE;
+        if ((rights & (kingSide | queenSide)) == 0 || position.isSquareAttacked(king, opponent)) {
+            return count;
+        }
+        final int piece = BitBoard.pieceIndex(side, BitBoard.KING);
+        final long occupied = position.getOccupied();
+        if ((rights & kingSide) != 0 && (occupied & (3L << (king + 1))) == 0
+                && !position.isSquareAttacked(king + 1, opponent) && !position.isSquareAttacked(king + 2, opponent)) {
+            moves[count++] = PackedMove.create(king, king + 2, piece, BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.CASTLE);
+        }
+        if ((rights & queenSide) != 0 && (occupied & (7L << (king - 3))) == 0
+                && !position.isSquareAttacked(king - 1, opponent) && !position.isSquareAttacked(king - 2, opponent)) {
+            moves[count++] = PackedMove.create(king, king - 2, piece, BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.CASTLE);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,192 @@
+package fi.helsinki.chessai.board;
+
+import fi.helsinki.chessai.board.pieces.Piece;
+import fi.helsinki.chessai.utility.BoardUtility;
+
+/**
+ * Utility for moves packed into a single int so the search can keep its move lists in int arrays.
+ * Bits 0-5 hold the starting tile, 6-11 the destination, 12-15 the moved piece,
+ * 16-19 the captured piece, 20-23 the promotion piece and 24-26 the type of the move.
+ * Pieces are BitBoard piece indexes and a missing piece is stored as 15.
+ * @author janne
+ */
+public final class PackedMove {
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int CASTLE = 2;
+    public static final int EN_PASSANT = 3;
+    public static final int PROMOTION = 4;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PIECE_MASK = 0xF;
+    private static final int FLAG_MASK = 0x7;
+    private static final int TO_SHIFT = 6;
+    private static final int MOVED_SHIFT = 12;
+    private static final int CAPTURED_SHIFT = 16;
+    private static final int PROMOTION_SHIFT = 20;
+    private static final int FLAG_SHIFT = 24;
+
+    private PackedMove() {
+        throw new RuntimeException("Utility class only");
+    }
+
+    /**
+     * Packs a move into an int.
+     * @param from starting tile
+     * @param to destination tile
+     * @param moved the moving piece
+     * @param captured the captured piece or BitBoard.NO_PIECE
+     * @param promotion the piece a pawn promotes to or BitBoard.NO_PIECE
+     * @param flag type of the move
+     * @return
+     */
+    public static int create(final int from, final int to, final int moved, final int captured, final int promotion, final int flag) {
+        return from
+                | to << TO_SHIFT
+                | moved << MOVED_SHIFT
+                | (captured & PIECE_MASK) << CAPTURED_SHIFT
+                | (promotion & PIECE_MASK) << PROMOTION_SHIFT
+                | flag << FLAG_SHIFT;
+    }
+
+    /**
+     * Get the position of the piece before movement.
+     * @param move
+     * @return
+     */
+    public static int getFrom(final int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * Get the location of the destination.
+     * @param move
+     * @return
+     */
+    public static int getTo(final int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * Get the piece that moves.
+     * @param move
+     * @return
+     */
+    public static int getMovedPiece(final int move) {
+        return (move >>> MOVED_SHIFT) & PIECE_MASK;
+    }
+
+    /**
+     * Get the captured piece or BitBoard.NO_PIECE.
+     * @param move
+     * @return
+     */
+    public static int getCapturedPiece(final int move) {
+        return toPiece((move >>> CAPTURED_SHIFT) & PIECE_MASK);
+    }
+
+    /**
+     * Get the promotion piece or BitBoard.NO_PIECE.
+     * @param move
+     * @return
+     */
+    public static int getPromotionPiece(final int move) {
+        return toPiece((move >>> PROMOTION_SHIFT) & PIECE_MASK);
+    }
+
+    /**
+     * Get the type of the move.
+     * @param move
+     * @return
+     */
+    public static int getFlag(final int move) {
+        return (move >>> FLAG_SHIFT) & FLAG_MASK;
+    }
+
+    /**
+     * Returns true if the move captures a piece.
+     * @param move
+     * @return
+     */
+    public static boolean isCapture(final int move) {
+        return ((move >>> CAPTURED_SHIFT) & PIECE_MASK) != PIECE_MASK;
+    }
+
+    /**
+     * Returns true if a pawn promotes with the move.
+     * @param move
+     * @return
+     */
+    public static boolean isPromotion(final int move) {
+        return getFlag(move) == PROMOTION;
+    }
+
+    /**
+     * Decodes a stored piece field.
+     * @param field
+     * @return
+     */
+    private static int toPiece(final int field) {
+        return field == PIECE_MASK ? BitBoard.NO_PIECE : field;
+    }
+
+    /**
+     * Finds the matching Move on a game board, so a move found by the search can be played in the GUI.
+     * @param move
+     * @param board
+     * @return the move or Move.NULL_MOVE
+     */
+    public static Move toMove(final int move, final Board board) {
+        if (move == NONE) {
+            return Move.NULL_MOVE;
+        }
+        return Move.MoveFactory.createMove(board, getFrom(move), getTo(move));
+    }
+
+    /**
+     * Packs a Move of a game board.
+     * @param move
+     * @return the packed move or NONE for the null move
+     */
+    public static int fromMove(final Move move) {
+        if (move == Move.NULL_MOVE) {
+            return NONE;
+        }
+        final Piece movedPiece = move.getMovedPiece();
+        final int side = BitBoard.sideIndex(movedPiece.getPieceSide());
+        final int moved = BitBoard.pieceIndex(side, movedPiece.getPieceType().ordinal());
+        int captured = BitBoard.NO_PIECE;
+        int promotion = BitBoard.NO_PIECE;
+        int flag = QUIET;
+        if (move instanceof Move.CastleMove) {
+            flag = CASTLE;
+        } else if (move instanceof Move.PawnJump) {
+            flag = DOUBLE_PAWN_PUSH;
+        } else if (move instanceof Move.PawnEnPassantAttackMove) {
+            flag = EN_PASSANT;
+            captured = BitBoard.pieceIndex(side ^ 1, BitBoard.PAWN);
+        } else if (move instanceof Move.PawnPromotion) {
+            flag = PROMOTION;
+            promotion = BitBoard.pieceIndex(side, BitBoard.QUEEN);
+        }
+        final Piece target = move.getBoard().getTile(move.getDestination()).getPiece();
+        if (flag != EN_PASSANT && target != null) {
+            captured = BitBoard.pieceIndex(BitBoard.sideIndex(target.getPieceSide()), target.getPieceType().ordinal());
+        }
+        return create(move.getCurrentPosition(), move.getDestination(), moved, captured, promotion, flag);
+    }
+
+    /**
+     * Represents the move in algebraic notation.
+     * @param move
+     * @return
+     */
+    public static String toString(final int move) {
+        if (move == NONE) {
+            return "Move doesn't exist";
+        }
+        return BoardUtility.getNotationFromCoodinate(getFrom(move)) + "-" + BoardUtility.getNotationFromCoodinate(getTo(move));
+    }
+}
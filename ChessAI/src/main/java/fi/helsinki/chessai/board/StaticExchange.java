@@ -0,0 +1,122 @@
+package fi.helsinki.chessai.board;
+
+import fi.helsinki.chessai.board.pieces.Piece.PieceType;
+import fi.helsinki.chessai.utility.MagicBitboards;
+
+/**
+ * Static Exchange Evaluation. Resolves the captures on the target tile of a move without making any moves:
+ * both sides recapture with their least valuable attacker, a slider that was behind a captured piece joins
+ * the exchange, and either side can stop capturing when it would lose material by going on.
+ * @author janne
+ */
+public final class StaticExchange {
+    private static final int[] PIECE_VALUES = pieceValues();
+    public static final int MAX_EXCHANGE = 32;
+
+    private StaticExchange() {
+        throw new RuntimeException("Utility class only");
+    }
+
+    /**
+     * Values of the piece types indexed like the BitBoard types.
+     * @return
+     */
+    private static int[] pieceValues() {
+        final PieceType[] types = PieceType.values();
+        final int[] values = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            values[i] = types[i].getPieceValue();
+        }
+        return values;
+    }
+
+    /**
+     * Returns the value of a piece type.
+     * @param type
+     * @return
+     */
+    public static int pieceValue(final int type) {
+        return PIECE_VALUES[type];
+    }
+
+    /**
+     * Returns the material the side making the move wins or loses on the target tile when both sides
+     * capture there as long as it pays off.
+     * @param position position before the move
+     * @param move
+     * @param gain array of at least MAX_EXCHANGE elements for the gains of the exchange
+     * @return material balance of the exchange for the side making the move
+     */
+    public static int evaluate(final BitBoard position, final int move, final int[] gain) {
+        if (PackedMove.getFlag(move) == PackedMove.CASTLE) {
+            return 0;
+        }
+        final int from = PackedMove.getFrom(move);
+        final int to = PackedMove.getTo(move);
+        final int moved = PackedMove.getMovedPiece(move);
+        long occupied = position.getOccupied() ^ (1L << from);
+        if (PackedMove.getFlag(move) == PackedMove.EN_PASSANT) {
+            occupied ^= 1L << BitBoard.enPassantCaptureSquare(to, BitBoard.sideOf(moved));
+        }
+        gain[0] = PackedMove.isCapture(move) ? PIECE_VALUES[BitBoard.typeOf(PackedMove.getCapturedPiece(move))] : 0;
+        int onSquare = PIECE_VALUES[BitBoard.typeOf(moved)];
+        if (PackedMove.isPromotion(move)) {
+            gain[0] += PIECE_VALUES[BitBoard.QUEEN] - PIECE_VALUES[BitBoard.PAWN];
+            onSquare = PIECE_VALUES[BitBoard.QUEEN];
+        }
+        final long diagonalSliders = position.getPieces(BitBoard.WHITE, BitBoard.BISHOP) | position.getPieces(BitBoard.BLACK, BitBoard.BISHOP)
+                | position.getPieces(BitBoard.WHITE, BitBoard.QUEEN) | position.getPieces(BitBoard.BLACK, BitBoard.QUEEN);
+        final long straightSliders = position.getPieces(BitBoard.WHITE, BitBoard.ROOK) | position.getPieces(BitBoard.BLACK, BitBoard.ROOK)
+                | position.getPieces(BitBoard.WHITE, BitBoard.QUEEN) | position.getPieces(BitBoard.BLACK, BitBoard.QUEEN);
+        long attackers = position.attackersTo(to, occupied) & occupied;
+        int side = BitBoard.sideOf(moved) ^ 1;
+        int depth = 1;
+        while (depth < MAX_EXCHANGE) {
+            final long sideAttackers = attackers & position.getSideOccupancy(side);
+            if (sideAttackers == 0) {
+                break;
+            }
+            int type = BitBoard.PAWN;
+            while ((sideAttackers & position.getPieces(side, type)) == 0) {
+                type++;
+            }
+            if (type == BitBoard.KING && (attackers & position.getSideOccupancy(side ^ 1)) != 0) {
+                break;
+            }
+            gain[depth] = onSquare - gain[depth - 1];
+            onSquare = PIECE_VALUES[type];
+            occupied ^= Long.lowestOneBit(sideAttackers & position.getPieces(side, type));
+            if (type == BitBoard.PAWN || type == BitBoard.BISHOP || type == BitBoard.QUEEN) {
+                attackers |= MagicBitboards.bishopAttacks(to, occupied) & diagonalSliders;
+            }
+            if (type == BitBoard.ROOK || type == BitBoard.QUEEN) {
+                attackers |= MagicBitboards.rookAttacks(to, occupied) & straightSliders;
+            }
+            attackers &= occupied;
+            side ^= 1;
+            depth++;
+        }
+        while (--depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        }
+        return gain[0];
+    }
+
+    /**
+     * Returns true if the capture loses material. A capture of a piece worth at least as much as the
+     * capturing piece never loses, so the exchange is resolved only for the other captures.
+     * @param position position before the move
+     * @param move
+     * @param gain array of at least MAX_EXCHANGE elements for the gains of the exchange
+     * @return
+     */
+    public static boolean isLosingCapture(final BitBoard position, final int move, final int[] gain) {
+        if (!PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+            return false;
+        }
+        if (PIECE_VALUES[BitBoard.typeOf(PackedMove.getCapturedPiece(move))] >= PIECE_VALUES[BitBoard.typeOf(PackedMove.getMovedPiece(move))]) {
+            return false;
+        }
+        return evaluate(position, move, gain) < 0;
+    }
+}
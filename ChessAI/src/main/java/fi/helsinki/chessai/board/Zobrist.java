@@ -0,0 +1,166 @@
+package fi.helsinki.chessai.board;
+
+import fi.helsinki.chessai.board.pieces.Pawn;
+import fi.helsinki.chessai.board.pieces.Piece;
+import java.util.Random;
+
+/**
+ * Zobrist hashing of positions.
+ * Every piece on every tile, the side to move, every set of castling rights and every
+ * en passant file has a random 64-bit number and the key of a position is the XOR of its parts.
+ * A move changes only a few parts, so the key is updated with a few XORs instead of being recomputed.
+ * @author janne
+ */
+public final class Zobrist {
+    private static final long SEED = 1070372L;
+
+    private static final long[][] PIECES = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILES = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        final Random random = new Random(SEED);
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                PIECES[piece][square] = random.nextLong();
+            }
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            CASTLING[rights] = random.nextLong();
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILES[file] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+        throw new RuntimeException("Utility class only");
+    }
+
+    /**
+     * Key of a piece on a tile.
+     * @param piece
+     * @param square
+     * @return
+     */
+    public static long piece(final int piece, final int square) {
+        return PIECES[piece][square];
+    }
+
+    /**
+     * Key of a set of castling rights.
+     * @param rights
+     * @return
+     */
+    public static long castling(final int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * Key of the file of an en passant tile or 0 if there is none.
+     * @param square
+     * @return
+     */
+    public static long enPassant(final int square) {
+        return square == BitBoard.NO_SQUARE ? 0 : EN_PASSANT_FILES[square % 8];
+    }
+
+    /**
+     * Key that is on when black is to move.
+     * @return
+     */
+    public static long sideToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    /**
+     * Computes the key of a bitboard position from scratch.
+     * @param position
+     * @return
+     */
+    public static long computeKey(final BitBoard position) {
+        long key = 0;
+        long occupied = position.getOccupied();
+        while (occupied != 0) {
+            final int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            key ^= PIECES[position.pieceAt(square)][square];
+        }
+        if (position.getSideToMove() == BitBoard.BLACK) {
+            key ^= BLACK_TO_MOVE;
+        }
+        return key ^ CASTLING[position.getCastlingRights()] ^ enPassant(position.getEnPassantSquare());
+    }
+
+    /**
+     * Computes the key of a game board from scratch.
+     * @param board
+     * @return
+     */
+    public static long computeKey(final Board board) {
+        long key = 0;
+        for (final Piece piece : board.getAllPieces()) {
+            key ^= PIECES[pieceIndex(piece)][piece.getPosition()];
+        }
+        if (!board.currentPlayer().getSide().isWhite()) {
+            key ^= BLACK_TO_MOVE;
+        }
+        return key ^ CASTLING[BitBoard.castlingRights(board)] ^ enPassant(enPassantSquare(board));
+    }
+
+    /**
+     * Computes the key of the board a move leads to from the key of the board it is made on.
+     * @param board
+     * @param move
+     * @return
+     */
+    static long keyAfterMove(final Board board, final Move move) {
+        final int packed = PackedMove.fromMove(move);
+        final int from = PackedMove.getFrom(packed);
+        final int to = PackedMove.getTo(packed);
+        final int piece = PackedMove.getMovedPiece(packed);
+        final int captured = PackedMove.getCapturedPiece(packed);
+        final int promotion = PackedMove.getPromotionPiece(packed);
+        final int flag = PackedMove.getFlag(packed);
+        final int side = BitBoard.sideOf(piece);
+        long key = board.getZobristKey() ^ BLACK_TO_MOVE;
+        key ^= PIECES[piece][from] ^ PIECES[promotion == BitBoard.NO_PIECE ? piece : promotion][to];
+        if (flag == PackedMove.EN_PASSANT) {
+            key ^= PIECES[captured][BitBoard.enPassantCaptureSquare(to, side)];
+        } else if (captured != BitBoard.NO_PIECE) {
+            key ^= PIECES[captured][to];
+        }
+        if (flag == PackedMove.CASTLE) {
+            final int rook = BitBoard.pieceIndex(side, BitBoard.ROOK);
+            key ^= PIECES[rook][BitBoard.castleRookStart(to)] ^ PIECES[rook][BitBoard.castleRookDestination(to)];
+        }
+        final int rights = BitBoard.castlingRights(board);
+        key ^= CASTLING[rights] ^ CASTLING[rights & ~(BitBoard.lostCastlingRights(from) | BitBoard.lostCastlingRights(to))];
+        key ^= enPassant(enPassantSquare(board));
+        if (flag == PackedMove.DOUBLE_PAWN_PUSH) {
+            key ^= enPassant((from + to) / 2);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the tile behind the pawn that jumped on the last move.
+     * @param board
+     * @return the tile or BitBoard.NO_SQUARE
+     */
+    private static int enPassantSquare(final Board board) {
+        final Pawn pawn = board.getEnPassantPawn();
+        return pawn == null ? BitBoard.NO_SQUARE : pawn.getPosition() - pawn.getPieceSide().getDirection() * 8;
+    }
+
+    /**
+     * Returns the BitBoard piece index of a piece.
+     * @param piece
+     * @return
+     */
+    private static int pieceIndex(final Piece piece) {
+        return BitBoard.pieceIndex(BitBoard.sideIndex(piece.getPieceSide()), piece.getPieceType().ordinal());
+    }
+}
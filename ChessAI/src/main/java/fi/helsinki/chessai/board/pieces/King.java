@@ -3,6 +3,7 @@ package fi.helsinki.chessai.board.pieces;
 import fi.helsinki.chessai.player.Side;
 import fi.helsinki.chessai.board.Move;
 import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.utility.AttackTables;
 import fi.helsinki.chessai.utility.MyList;
 import fi.helsinki.chessai.utility.PieceUtility;
 
@@ -11,7 +12,6 @@ import fi.helsinki.chessai.utility.PieceUtility;
  * @author janne
  */
 public class King extends Piece{
-    private final static int[] MOVES = {-9, -8, -7, -1, 1, 7, 8, 9};
     private final boolean isCastled;
     
     /**
@@ -32,7 +32,7 @@ public class King extends Piece{
      */
     @Override
     public MyList<Move> getLegalMoves(Board board) {
-        final MyList<Move> legalMoves = PieceUtility.getLegalSingleMoves(board, this, MOVES, 1);
+        final MyList<Move> legalMoves = PieceUtility.getLegalSingleMoves(board, this, AttackTables.KING_ATTACKS);
         if(board.getBlackPlayer() != null) {
             if(this.getPieceSide() == Side.BLACK) {
                 legalMoves.addAll(board.getBlackPlayer().getCastleMoves());
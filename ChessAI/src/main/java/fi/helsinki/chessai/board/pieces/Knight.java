@@ -3,6 +3,7 @@ package fi.helsinki.chessai.board.pieces;
 import fi.helsinki.chessai.player.Side;
 import fi.helsinki.chessai.board.Move;
 import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.utility.AttackTables;
 import fi.helsinki.chessai.utility.MyList;
 import fi.helsinki.chessai.utility.PieceUtility;
 
@@ -11,7 +12,6 @@ import fi.helsinki.chessai.utility.PieceUtility;
  * @author janne
  */
 public class Knight extends Piece {
-    private final static int[] MOVES = {-17, -15, -10, -6, 6, 10, 15, 17};
     
     /**
      * Constructor
@@ -30,7 +30,7 @@ public class Knight extends Piece {
      */
     @Override
     public MyList<Move> getLegalMoves(Board board) {
-        return PieceUtility.getLegalSingleMoves(board, this, MOVES, 2);
+        return PieceUtility.getLegalSingleMoves(board, this, AttackTables.KNIGHT_ATTACKS);
     }
     
     @Override
@@ -3,6 +3,7 @@ package fi.helsinki.chessai.board.pieces;
 import fi.helsinki.chessai.player.Side;
 import fi.helsinki.chessai.board.Move;
 import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.utility.AttackTables;
 import fi.helsinki.chessai.utility.BoardUtility;
 import fi.helsinki.chessai.utility.MyList;
 
@@ -11,7 +12,7 @@ import fi.helsinki.chessai.utility.MyList;
  * @author janne
  */
 public class Pawn extends Piece{
-    private final static int[] MOVES = {7, 8, 9, 16};
+    private final static int[] MOVES = {8, 16};
     
     /**
      * Constructor
@@ -34,14 +35,20 @@ public class Pawn extends Piece{
         final MyList<Move> legalMoves = new MyList<>();
         for(final int offset : MOVES) {
             pieceDestination = this.position + (this.getPieceSide().getDirection() * offset);
-            if (BoardUtility.isValidTile(pieceDestination) && !BoardUtility.isOutOfBounds(this.position, pieceDestination, 1)) {
+            if (BoardUtility.isValidTile(pieceDestination)) {
                 if (moveForwardOnce(board, pieceDestination, offset, legalMoves)) {
                 } else if (moveForwardTwice(board, pieceDestination, offset, legalMoves)) {
-                } else if (attackMove(board, pieceDestination, offset, legalMoves)) {
-                } else if (enPassantAttackMove(board, pieceDestination, offset, legalMoves)) {
                 }
             }
         }
+        long attacks = AttackTables.PAWN_ATTACKS[this.pieceSide.isWhite() ? 0 : 1][this.position];
+        while (attacks != 0) {
+            pieceDestination = Long.numberOfTrailingZeros(attacks);
+            attacks &= attacks - 1;
+            if (attackMove(board, pieceDestination, legalMoves)) {
+            } else if (enPassantAttackMove(board, pieceDestination, legalMoves)) {
+            }
+        }
         return legalMoves;
     }
     
@@ -88,11 +95,11 @@ public class Pawn extends Piece{
     /**
      * The conditions for pawn attacking.
      * @param board
-     * @param pieceDestination
+     * @param pieceDestination a tile the pawn attacks
      * @param legalMoves 
      */
-    private boolean attackMove(Board board, int pieceDestination, int offset, MyList<Move> legalMoves) {
-        if (offset == 7 && board.getTile(pieceDestination).occupied() || offset == 9 && board.getTile(pieceDestination).occupied()) {
+    private boolean attackMove(Board board, int pieceDestination, MyList<Move> legalMoves) {
+        if (board.getTile(pieceDestination).occupied()) {
             if(this.pieceSide.isPromotionRow(pieceDestination)) {
                 legalMoves.add(new Move.PawnPromotion(new Move.AttackMove(board, this, pieceDestination, this)));
             } else {
@@ -108,14 +115,12 @@ public class Pawn extends Piece{
     /**
      * The conditions for en passant attacks.
      * @param board
-     * @param pieceDestination
-     * @param offset
+     * @param pieceDestination a tile the pawn attacks
      * @param legalMoves 
      */
-    private boolean enPassantAttackMove(Board board, int pieceDestination, int offset, MyList<Move> legalMoves) {
+    private boolean enPassantAttackMove(Board board, int pieceDestination, MyList<Move> legalMoves) {
         if (board.getEnPassantPawn() != null && !board.getTile(pieceDestination).occupied()) {
-            if (offset == 7 && board.getEnPassantPawn().getPosition() + this.getPieceSide().getDirection()  == this.position ||
-                    offset == 9 && board.getEnPassantPawn().getPosition() - this.getPieceSide().getDirection() == this.position) {
+            if (board.getEnPassantPawn().getPosition() == pieceDestination - this.getPieceSide().getDirection() * 8) {
 
                 if (this.pieceSide != board.getEnPassantPawn().getPieceSide()) {
                     legalMoves.add(new Move.PawnEnPassantAttackMove(board, this, pieceDestination, board.getEnPassantPawn()));
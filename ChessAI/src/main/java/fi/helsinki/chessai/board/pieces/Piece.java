@@ -106,6 +106,14 @@ public abstract class Piece {
             this.pieceValue = pieceValue;
         }
         
+        /**
+         * Returns the amounth of score the piece type is worth.
+         * @return 
+         */
+        public int getPieceValue() {
+            return this.pieceValue;
+        }
+        
         @Override
         public String toString() {
             return this.pieceName;
@@ -1,6 +1,7 @@
 package fi.helsinki.chessai.board.pieces;
 
 import fi.helsinki.chessai.player.Side;
+import fi.helsinki.chessai.utility.MagicBitboards;
 import fi.helsinki.chessai.utility.PieceUtility;
 import fi.helsinki.chessai.board.Move;
 import fi.helsinki.chessai.board.Board;
@@ -11,7 +12,6 @@ import fi.helsinki.chessai.utility.MyList;
  * @author janne
  */
 public class Rook extends Piece{
-        private final static int[] MOVE_VECTORS = {-8, -1, 1, 8};
     
     /**
      * Constructor
@@ -30,7 +30,7 @@ public class Rook extends Piece{
      */
     @Override
     public MyList<Move> getLegalMoves(Board board) {
-        return PieceUtility.getLegalVectorMoves(board, this, MOVE_VECTORS);    
+        return PieceUtility.getLegalVectorMoves(board, this, MagicBitboards.rookAttacks(this.position, board.getOccupied()));    
     }
 
     @Override
@@ -3,6 +3,7 @@ package fi.helsinki.chessai.gui;
 import fi.helsinki.chessai.player.Side;
 import fi.helsinki.chessai.gui.Table.PlayerType;
 import fi.helsinki.chessai.player.Player;
+import fi.helsinki.chessai.player.ai.ParallelMode;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -16,10 +17,18 @@ class GameSetup extends JDialog {
     private PlayerType whitePlayerType;
     private PlayerType blackPlayerType;
     private final JSpinner searchDepthSpinner;
+    private final JSpinner moveTimeSpinner;
+    private final JSpinner threadSpinner;
+    private final JComboBox<String> parallelSearchBox;
     private boolean vsAI;
 
     private static final String HUMAN_TEXT = "Human";
     private static final String COMPUTER_TEXT = "Computer";
+    private static final String LAZY_SMP_TEXT = "Lazy SMP";
+    private static final String YOUNG_BROTHERS_WAIT_TEXT = "Young Brothers Wait";
+    private static final String DETERMINISTIC_TEXT = "Same move with any number of threads";
+    private static final int MAX_SEARCH_DEPTH = 20;
+    private static final int MAX_DETERMINISTIC_DEPTH = 6;
 
     /**
      * Constructor that creates the visible buttons and text.
@@ -53,7 +62,14 @@ class GameSetup extends JDialog {
         myPanel.add(blackHumanButton);
         myPanel.add(blackComputerButton);
 
-        this.searchDepthSpinner = addLabeledSpinner(myPanel, "Search Depth of AI", new SpinnerNumberModel(3, 1, 9, 1));
+        this.searchDepthSpinner = addLabeledSpinner(myPanel, "Search Depth of AI", new SpinnerNumberModel(3, 1, MAX_SEARCH_DEPTH, 1));
+        this.moveTimeSpinner = addLabeledSpinner(myPanel, "Seconds per move (0 = no limit)", new SpinnerNumberModel(0, 0, 600, 1));
+        this.threadSpinner = addLabeledSpinner(myPanel, "Search threads", new SpinnerNumberModel(1, 1, Math.max(1, Runtime.getRuntime().availableProcessors()), 1));
+
+        this.parallelSearchBox = new JComboBox<>(new String[] {LAZY_SMP_TEXT, YOUNG_BROTHERS_WAIT_TEXT, DETERMINISTIC_TEXT});
+        myPanel.add(new JLabel("Parallel search"));
+        myPanel.add(this.parallelSearchBox);
+        this.parallelSearchBox.addActionListener((ActionEvent e) -> updateDeterministicLimits());
 
         final JButton cancelButton = new JButton("Cancel");
         final JButton okButton = new JButton("OK");
@@ -83,6 +99,20 @@ class GameSetup extends JDialog {
         vsAI = checkIfAIvsAI();
     }
     
+    /**
+     * The deterministic search has no time limit and searches every root move from scratch,
+     * so the move time is disabled and the depth is capped while it is selected.
+     */
+    private void updateDeterministicLimits() {
+        final boolean deterministic = isDeterministic();
+        final SpinnerNumberModel depthModel = (SpinnerNumberModel) this.searchDepthSpinner.getModel();
+        depthModel.setMaximum(deterministic ? MAX_DETERMINISTIC_DEPTH : MAX_SEARCH_DEPTH);
+        if (getSearchDepth() > (Integer) depthModel.getMaximum()) {
+            depthModel.setValue(depthModel.getMaximum());
+        }
+        this.moveTimeSpinner.setEnabled(!deterministic);
+    }
+
     /**
      * Turns the setup bar visible.
      */
@@ -136,6 +166,39 @@ class GameSetup extends JDialog {
         return (Integer)this.searchDepthSpinner.getValue();
     }
     
+    /**
+     * Time the AI may use for a move in seconds, 0 if only the search depth limits it.
+     * The deterministic search has no time limit.
+     * @return 
+     */
+    public int getMoveTime() {
+        return isDeterministic() ? 0 : (Integer)this.moveTimeSpinner.getValue();
+    }
+    
+    /**
+     * Number of threads the AI searches with.
+     * @return 
+     */
+    public int getThreads() {
+        return (Integer)this.threadSpinner.getValue();
+    }
+    
+    /**
+     * True if the threads should split the root moves so that the search always plays the same move.
+     * @return 
+     */
+    public boolean isDeterministic() {
+        return DETERMINISTIC_TEXT.equals(this.parallelSearchBox.getSelectedItem());
+    }
+    
+    /**
+     * How the threads of the MiniMax search share the work.
+     * @return 
+     */
+    public ParallelMode getParallelMode() {
+        return YOUNG_BROTHERS_WAIT_TEXT.equals(this.parallelSearchBox.getSelectedItem()) ? ParallelMode.YOUNG_BROTHERS_WAIT : ParallelMode.LAZY_SMP;
+    }
+    
     public GameSetup getGameSetup() {
         return this;
     }
@@ -7,7 +7,9 @@ import fi.helsinki.chessai.board.Tile;
 import fi.helsinki.chessai.board.Move;
 import fi.helsinki.chessai.board.pieces.Piece;
 import fi.helsinki.chessai.player.ai.MiniMax;
+import fi.helsinki.chessai.player.ai.ParallelRootSearch;
 import fi.helsinki.chessai.player.ai.MoveStrategy;
+import fi.helsinki.chessai.player.ai.TimeControl;
 import fi.helsinki.chessai.utility.BoardUtility;
 import fi.helsinki.chessai.utility.MyList;
 import java.awt.BorderLayout;
@@ -45,7 +47,6 @@ public class Table extends Observable {
     private final Color lightTileColor = Color.decode("#FFFACD");
     private final Color darkTileColor = Color.decode("#593E1A");
     private static final Table INSTANCE = new Table();
-    private MyList<Board> boardHistory;
     /**
      * Constructor
      */
@@ -75,7 +76,6 @@ public class Table extends Observable {
         this.chessBoard = Board.createStandardBoard();
         this.gameSetup = new GameSetup(this.frame).getGameSetup();
         this.panel = new BoardPanel();
-        this.boardHistory = null;
         this.frame.add(panel, BorderLayout.CENTER);
     }
     
@@ -140,29 +140,6 @@ public class Table extends Observable {
             initializeGame();
         }
     }
-
-    /**
-     * Returns true if the same board state has repeated three in the last ten boards.
-     * @return 
-     */
-    public boolean checkBoardRepetition() {
-        if(boardHistory == null) return false;
-        int count = 0;
-        for(Board oldBoard : boardHistory) {
-            if(oldBoard.toString().equals(chessBoard.toString())) count++;
-        }
-        return count>2;
-    }
-    
-    /**
-     * Adds the move to the board history for stalemate checking.
-     * @param board 
-     */
-    private void addToHistory() {
-        if(boardHistory == null) boardHistory = new MyList<>();
-        if(boardHistory.size()>9) boardHistory.remove(0);
-        boardHistory.add(chessBoard);
-    }    
     
     private GameSetup getGameSetup() {
         return this.gameSetup;
@@ -242,7 +219,13 @@ public class Table extends Observable {
          */
         @Override
         protected Move doInBackground() throws Exception {
-            final MoveStrategy miniMax = new MiniMax(Table.get().getGameSetup().getSearchDepth(), Table.get().getGameSetup().vsAI());
+            final int moveTime = Table.get().getGameSetup().getMoveTime();
+            final TimeControl timeControl = moveTime > 0 ? TimeControl.fixedMoveTime(moveTime * 1000L) : TimeControl.NONE;
+            final GameSetup setup = Table.get().getGameSetup();
+            final MoveStrategy miniMax = setup.isDeterministic()
+                    ? new ParallelRootSearch(setup.getSearchDepth(), setup.vsAI(), setup.getThreads())
+                    : new MiniMax.Builder(setup.getSearchDepth(), setup.vsAI()).setTimeControl(timeControl)
+                            .setThreads(setup.getThreads()).setParallelMode(setup.getParallelMode()).build();
             final Move bestMove = miniMax.execute(Table.get().getGameBoard());
             return bestMove;
         }
@@ -256,7 +239,6 @@ public class Table extends Observable {
                 final Move bestMove = get();
                 Table.get().updateGameBoard(Table.get().getGameBoard().currentPlayer().makeMove(bestMove).getTransitionBoard());
                 Table.get().getBoardPanel().drawBoard(Table.get().getGameBoard());
-                Table.get().addToHistory();
                 Table.get().updateAfterMove(PlayerType.COMPUTER);
             } catch (InterruptedException | ExecutionException ex) {
                 ex.printStackTrace();
@@ -340,7 +322,6 @@ public class Table extends Observable {
                                     transition = chessBoard.currentPlayer().makeMove(move);
                                     if(transition.getMoveStatus().isDone()) {
                                         chessBoard = (Board) transition.getBoard();
-                                        addToHistory();
                                     }
                                 }
                                 clearState();
@@ -18,8 +18,8 @@ import fi.helsinki.chessai.utility.MyList;
  */
 public class BlackPlayer extends Player {
     
-    public BlackPlayer(Board board, MyList<Move> blackLegalMoves, MyList<Move> whiteLegalMoves) {
-        super(board, blackLegalMoves, whiteLegalMoves);
+    public BlackPlayer(Board board) {
+        super(board);
     }
 
     @Override
@@ -38,14 +38,14 @@ public class BlackPlayer extends Player {
     }
     
     @Override
-    protected MyList<Move> kingCastles(MyList<Move> currectPlayerMoves, MyList<Move> opponentMoves) {
+    protected MyList<Move> kingCastles() {
         final MyList<Move> kingCastles = new MyList<>();
         //King side castle
         if(this.playerKing.isFirstMove() && !this.isInCheck()) {
             if(!this.board.getTile(5).occupied() && !this.board.getTile(6).occupied()) {
                 final Tile rookTile = this.board.getTile(7);
                 if(rookTile.occupied() && rookTile.getPiece().isFirstMove()) {
-                    if(Player.attacksOnTile(5, opponentMoves).isEmpty() && Player.attacksOnTile(6, opponentMoves).isEmpty() && rookTile.getPiece().getPieceType() == Piece.PieceType.ROOK){
+                    if(!isAttacked(5) && !isAttacked(6) && rookTile.getPiece().getPieceType() == Piece.PieceType.ROOK){
                         kingCastles.add(new Move.CastleMove(this.board, this.playerKing, 6, (Rook) rookTile.getPiece(), rookTile.getTileCoordinate(), 5));    
                     }
                 }
@@ -54,7 +54,7 @@ public class BlackPlayer extends Player {
             if(!this.board.getTile(1).occupied() && !this.board.getTile(2).occupied() && !this.board.getTile(3).occupied()) {
                 final Tile rookTile = this.board.getTile(0);
                 if(rookTile.occupied() && rookTile.getPiece().isFirstMove()) {
-                    if(Player.attacksOnTile(2, opponentMoves).isEmpty() && Player.attacksOnTile(3, opponentMoves).isEmpty() && rookTile.getPiece().getPieceType() == Piece.PieceType.ROOK){
+                    if(!isAttacked(2) && !isAttacked(3) && rookTile.getPiece().getPieceType() == Piece.PieceType.ROOK){
                         kingCastles.add(new Move.CastleMove(this.board, this.playerKing, 2, (Rook) rookTile.getPiece(), rookTile.getTileCoordinate(), 3));   
                     }
                    
@@ -6,40 +6,38 @@
 package fi.helsinki.chessai.player;
 
 import fi.helsinki.chessai.board.MoveTransition;
+import fi.helsinki.chessai.board.BitBoard;
 import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.board.MoveGenerator;
+import fi.helsinki.chessai.board.PackedMove;
 import fi.helsinki.chessai.board.pieces.King;
 import fi.helsinki.chessai.board.Move;
 import fi.helsinki.chessai.board.pieces.Piece;
 import fi.helsinki.chessai.board.pieces.Piece.PieceType;
-import fi.helsinki.chessai.gui.Table;
 import fi.helsinki.chessai.utility.MyList;
 
 /**
  * Class for the players of the game.
+ * The legal moves, the castle moves and the check status are found the first time they are
+ * needed and kept for the board, so a board that is only evaluated never generates them.
  * @author janne
  */
 public abstract class Player {
     
     protected final Board board;
     protected final King playerKing;
-    protected final MyList<Move> legalMoves;
-    private final boolean isInCheck;
-    private final MyList<Move> castleMoves;
+    private MyList<Move> legalMoves;
+    private Boolean isInCheck;
+    private MyList<Move> castleMoves;
+    private BitBoard position;
     
     /**
      * Constructor
      * @param board
-     * @param legalMoves legal moves for the current player
-     * @param opponentMoves legal moves of the opponent of the current player
      */
-    Player(final Board board, final MyList<Move> legalMoves, final MyList<Move> opponentMoves) {
+    Player(final Board board) {
         this.board = board;
         this.playerKing = establishKing();
-        this.castleMoves = kingCastles(legalMoves, opponentMoves);
-        legalMoves.addAll(castleMoves);
-        this.legalMoves = legalMoves;
-        this.isInCheck = !Player.attacksOnTile(this.playerKing.getPosition(), opponentMoves).isEmpty();
-        
     }
     private King establishKing() {
         for(final Piece piece : getActivePieces()) {
@@ -57,11 +55,26 @@ public abstract class Player {
         return this.playerKing;
     }
     
+    /**
+     * Returns the moves of the pieces and the castle moves of the player.
+     * @return 
+     */
     public MyList<Move> getLegalMoves() {
+        if(this.legalMoves == null) {
+            final MyList<Move> moves = new MyList<>();
+            for(final Piece piece : getActivePieces()) {
+                moves.addAll(piece.getLegalMoves(this.board));
+            }
+            moves.addAll(getCastleMoves());
+            this.legalMoves = moves;
+        }
         return this.legalMoves;
     }
 
     public MyList<Move> getCastleMoves() {
+        if(this.castleMoves == null) {
+            this.castleMoves = kingCastles();
+        }
         return this.castleMoves;
     }
     
@@ -70,19 +83,12 @@ public abstract class Player {
     }    
     
     /**
-     * Returns all the attacks on a specific tile.
+     * Returns true if a piece of the opponent attacks the tile.
      * @param position
-     * @param moves
      * @return 
      */
-    public static MyList<Move> attacksOnTile(int position, MyList<Move> moves) {
-        MyList<Move> attackMoves = new MyList<>();
-        for(final Move move : moves) {
-            if(position == move.getDestination()) {
-                attackMoves.add(move);
-            }
-        }
-        return attackMoves;
+    public boolean isAttacked(final int position) {
+        return this.board.isSquareAttacked(position, getSide().isWhite() ? Side.BLACK : Side.WHITE);
     }
     
     /**
@@ -91,7 +97,7 @@ public abstract class Player {
      * @return 
      */
     public boolean isLegalMove(final Move move) {
-        return this.legalMoves.contains(move);
+        return getLegalMoves().contains(move);
     }
     
     /**
@@ -99,6 +105,9 @@ public abstract class Player {
      * @return 
      */
     public boolean isInCheck() {
+        if(this.isInCheck == null) {
+            this.isInCheck = isAttacked(this.playerKing.getPosition());
+        }
         return this.isInCheck;
     }
     
@@ -107,7 +116,7 @@ public abstract class Player {
      * @return 
      */
     public boolean isInCheckMate() {
-        return this.isInCheck && !hasMoves();
+        return isInCheck() && !hasMoves();
     }
     
     /**
@@ -115,7 +124,7 @@ public abstract class Player {
      * @return 
      */
     public boolean isInStaleMate() {
-        return !this.isInCheck && !hasMoves() || Table.get().checkBoardRepetition() || this.getActivePieces().size() == 1 && this.getOpponent().getActivePieces().size() == 1;
+        return !isInCheck() && !hasMoves() || this.board.isDrawByRepetition() || this.getActivePieces().size() == 1 && this.getOpponent().getActivePieces().size() == 1;
     }
     
     /**
@@ -123,7 +132,7 @@ public abstract class Player {
      * @return 
      */
     public boolean isInStaleMateVsHuman() {
-        return !this.isInCheck && !hasMoves() || this.getActivePieces().size() == 1 && this.getOpponent().getActivePieces().size() == 1;
+        return !isInCheck() && !hasMoves() || this.getActivePieces().size() == 1 && this.getOpponent().getActivePieces().size() == 1;
     }    
     
     /**
@@ -131,9 +140,8 @@ public abstract class Player {
      * @return 
      */
     private boolean hasMoves() {
-        for(final Move move : this.legalMoves) {
-            final MoveTransition transition = makeMove(move);
-            if(transition.getMoveStatus().isDone()) {
+        for(final Move move : getLegalMoves()) {
+            if(leavesKingSafe(move)) {
                 return true;
             }  
         }
@@ -142,6 +150,7 @@ public abstract class Player {
     
     /**
      * Creates a new board with updated positions if the move is valid.
+     * A move that leaves the king in check is rejected without building the new board.
      * @param move
      * @return 
      */
@@ -149,12 +158,23 @@ public abstract class Player {
         if(!isLegalMove(move)) {
             return new MoveTransition(this.board, move, MoveTransition.MoveStatus.ILLEGAL_MOVE);
         }
-        final Board transitionBoard = move.execute();
-        final MyList<Move> kingAttacks = Player.attacksOnTile(transitionBoard.currentPlayer().getOpponent().getPlayersKing().getPosition(), transitionBoard.currentPlayer().getLegalMoves());
-        if(!kingAttacks.isEmpty()) {
+        if(!leavesKingSafe(move)) {
             return new MoveTransition(this.board, move, MoveTransition.MoveStatus.INCHECK);
         }
-        return new MoveTransition(transitionBoard, move, MoveTransition.MoveStatus.DONE);
+        return new MoveTransition(move.execute(), move, MoveTransition.MoveStatus.DONE);
+    }
+    
+    /**
+     * Returns true if the move of this player doesn't leave its king in check.
+     * The move is checked on a BitBoard of the position with this player to move, which is made the first time it is needed.
+     * @param move
+     * @return 
+     */
+    private boolean leavesKingSafe(final Move move) {
+        if(this.position == null) {
+            this.position = BitBoard.fromBoard(this.board, getSide());
+        }
+        return MoveGenerator.isLegalMove(this.position, PackedMove.fromMove(move));
     }
     
     
@@ -164,9 +184,7 @@ public abstract class Player {
     
     /**
      * Returns a list of moves that enables the king to castle.
-     * @param currectPlayerMoves
-     * @param opponentMoves
      * @return 
      */
-    protected abstract MyList<Move> kingCastles(MyList<Move> currectPlayerMoves, MyList<Move> opponentMoves);
+    protected abstract MyList<Move> kingCastles();
 }
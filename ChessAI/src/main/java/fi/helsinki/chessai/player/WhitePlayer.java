@@ -19,8 +19,8 @@ import fi.helsinki.chessai.utility.MyList;
  */
 public class WhitePlayer extends Player {
     
-    public WhitePlayer(Board board, MyList<Move> whiteLegalMoves, MyList<Move> blackLegalMoves) {
-        super(board, whiteLegalMoves, blackLegalMoves);
+    public WhitePlayer(Board board) {
+        super(board);
         
     }
 
@@ -40,14 +40,14 @@ public class WhitePlayer extends Player {
     }
 
     @Override
-    protected MyList<Move> kingCastles(MyList<Move> currectPlayerMoves, MyList<Move> opponentMoves) {
+    protected MyList<Move> kingCastles() {
         final MyList<Move> kingCastles = new MyList<>();
         //King side castle
         if(this.playerKing.isFirstMove() && !this.isInCheck()) {
             if(!this.board.getTile(61).occupied() && !this.board.getTile(62).occupied()) {
                 final Tile rookTile = this.board.getTile(63);
                 if(rookTile.occupied() && rookTile.getPiece().isFirstMove()) {
-                    if(Player.attacksOnTile(61, opponentMoves).isEmpty() && Player.attacksOnTile(62, opponentMoves).isEmpty() && rookTile.getPiece().getPieceType() == PieceType.ROOK) {
+                    if(!isAttacked(61) && !isAttacked(62) && rookTile.getPiece().getPieceType() == PieceType.ROOK) {
                         kingCastles.add(new Move.CastleMove(this.board, this.playerKing, 62, (Rook) rookTile.getPiece(), rookTile.getTileCoordinate(), 61));   
                     }
                     
@@ -57,7 +57,7 @@ public class WhitePlayer extends Player {
             if(!this.board.getTile(59).occupied() && !this.board.getTile(58).occupied() && !this.board.getTile(57).occupied()) {
                 final Tile rookTile = this.board.getTile(56);
                 if(rookTile.occupied() && rookTile.getPiece().isFirstMove()) {
-                    if(Player.attacksOnTile(58, opponentMoves).isEmpty() && Player.attacksOnTile(59, opponentMoves).isEmpty() && rookTile.getPiece().getPieceType() == Piece.PieceType.ROOK) {
+                    if(!isAttacked(58) && !isAttacked(59) && rookTile.getPiece().getPieceType() == Piece.PieceType.ROOK) {
                         kingCastles.add(new Move.CastleMove(this.board, this.playerKing, 58, (Rook) rookTile.getPiece(), rookTile.getTileCoordinate(), 59));    
                     }
                     
@@ -1,6 +1,6 @@
 package fi.helsinki.chessai.player.ai;
 
-import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.board.BitBoard;
 
 /**
  * Interface for board evaluators.
@@ -8,5 +8,5 @@ import fi.helsinki.chessai.board.Board;
  * @author janne
  */
 public interface BoardEvaluator {
-    int evaluate(Board board, int depth);
+    int evaluate(BitBoard position, int depth);
 }
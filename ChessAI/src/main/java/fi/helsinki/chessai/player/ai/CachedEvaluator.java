@@ -0,0 +1,117 @@
+package fi.helsinki.chessai.player.ai;
+
+import fi.helsinki.chessai.board.BitBoard;
+import java.util.Arrays;
+
+/**
+ * Evaluation cache in front of another evaluator. The same leaf positions are reached through
+ * transpositions and again on every iteration of the search, so their scores are kept in a fixed size
+ * direct-mapped table keyed by the Zobrist key. The evaluation scores castled kings, which the Zobrist key
+ * does not tell apart, so the castled state of both sides is mixed into the key. An entry is one long: the
+ * upper half of the key in bits 32-63 and the score in bits 0-31. A new entry always replaces the old one in its slot.
+ * The cached evaluator must not depend on the depth, and a cache is used by one search thread only.
+ * @author janne
+ */
+public final class CachedEvaluator implements BoardEvaluator {
+    private static final long EMPTY = 0;
+    private static final int BYTES_PER_ENTRY = 8;
+    private static final long KEY_MASK = 0xFFFFFFFF00000000L;
+    private static final long WHITE_CASTLED = 0x9E3779B97F4A7C15L;
+    private static final long BLACK_CASTLED = 0xC2B2AE3D27D4EB4FL;
+
+    private final BoardEvaluator evaluator;
+    private final long[] entries;
+    private final int indexMask;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructor
+     * @param evaluator evaluator of the positions that are not in the cache
+     * @param sizeInMegabytes the cache uses the largest power of two number of entries that fits the size
+     */
+    public CachedEvaluator(final BoardEvaluator evaluator, final int sizeInMegabytes) {
+        final long entries = Math.max(1, (long) sizeInMegabytes * 1024 * 1024 / BYTES_PER_ENTRY);
+        final int size = Long.numberOfTrailingZeros(Long.highestOneBit(Math.min(entries, 1 << 28)));
+        this.evaluator = evaluator;
+        this.entries = new long[1 << size];
+        this.indexMask = (1 << size) - 1;
+    }
+
+    /**
+     * Returns the cached score of the position or evaluates it and caches the score.
+     * @param position
+     * @param depth
+     * @return
+     */
+    @Override
+    public int evaluate(final BitBoard position, final int depth) {
+        final long key = cacheKey(position);
+        final int index = (int) key & this.indexMask;
+        final long entry = this.entries[index];
+        if (entry != EMPTY && (entry & KEY_MASK) == (key & KEY_MASK)) {
+            this.hits++;
+            return (int) entry;
+        }
+        this.misses++;
+        final int score = this.evaluator.evaluate(position, depth);
+        this.entries[index] = (key & KEY_MASK) | (score & 0xFFFFFFFFL);
+        return score;
+    }
+
+    /**
+     * Returns the Zobrist key of the position with the castled state of both sides.
+     * @param position
+     * @return
+     */
+    private static long cacheKey(final BitBoard position) {
+        long key = position.getZobristKey();
+        if (position.hasCastled(BitBoard.WHITE)) {
+            key ^= WHITE_CASTLED;
+        }
+        if (position.hasCastled(BitBoard.BLACK)) {
+            key ^= BLACK_CASTLED;
+        }
+        return key;
+    }
+
+    /**
+     * Returns how many evaluations were answered from the cache.
+     * @return
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns how many evaluations were passed to the cached evaluator.
+     * @return
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return
+     */
+    public int getSize() {
+        return this.entries.length;
+    }
+
+    /**
+     * Resets the hit and miss counters and keeps the cached scores.
+     */
+    public void resetCounters() {
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Empties the cache and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(this.entries, EMPTY);
+        resetCounters();
+    }
+}
@@ -1,113 +1,1077 @@
 package fi.helsinki.chessai.player.ai;
 
+import fi.helsinki.chessai.board.BitBoard;
 import fi.helsinki.chessai.board.Board;
 import fi.helsinki.chessai.board.Move;
+import fi.helsinki.chessai.board.MoveGenerator;
 import fi.helsinki.chessai.board.MoveTransition;
-import fi.helsinki.chessai.gui.Table;
+import fi.helsinki.chessai.board.PackedMove;
+import fi.helsinki.chessai.board.StaticExchange;
+import fi.helsinki.chessai.utility.MyList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class for the Minimax algorithm.
+ * The search is a negamax Principal Variation Search: scores are from the point of view of the side to move,
+ * the first move of a node is searched with the full window and the other moves with a zero window that is
+ * searched again with the full window only if the move turns out better. The principal variation of the
+ * played move is kept in a triangular table. Null move pruning and late move reductions, set by
+ * SearchParameters, skip or shorten the searches of moves that are unlikely to matter.
+ * Every iteration after the first one starts with an aspiration window around the score of the previous
+ * iteration, and the window is widened step by step when the score falls outside it. SearchParameters
+ * can turn the aspiration windows off.
+ * The search makes and unmakes moves on a single BitBoard instead of building a new board for every move.
+ * It deepens one ply at a time up to the search depth and plays the best move of the last
+ * completed iteration when the time budget runs out.
+ * With more than one thread the search is a Lazy SMP search: helper threads search the same position
+ * on their own copies with a shared transposition table and only the result of the main thread is played.
+ * In the Young Brothers Wait mode a node deep enough searches its eldest move first and then its younger
+ * moves in parallel in a ForkJoinPool, each on a copy of the position and with a worker search of its own.
  * @author janne
  */
 public class MiniMax implements MoveStrategy {
 
-    private final BoardEvaluator evaluator;
+    static final int INFINITY = Integer.MAX_VALUE;
+
+    private static final int MAX_PLY = 128;
+    private static final int DEFAULT_HASH_SIZE = 16;
+    private static final int DEFAULT_EVALUATION_CACHE_SIZE = 2;
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    private static final int DELTA_MARGIN = 200;
+    private static final int MIN_SPLIT_DEPTH = 3;
+    private static final int ASPIRATION_WINDOW = 50;
+    private static final int MAX_ASPIRATION_WINDOW = 1000;
+    private static final int MATE_SCORE = 10000000;
+    private static final int DRAW_SCORE = 0;
+
+    private final CachedEvaluator evaluator;
+    private final int evaluationCacheSize;
     private final int searchDepth;
-    private final boolean vsAI;
-    
+    private final boolean detectRepetitions;
+    private final int[][] moveLists;
+    private final int[][] scoreLists;
+    private final int[][] pvTable;
+    private final int[] pvLength;
+    private final MoveOrdering moveOrdering;
+    private final TranspositionTable transpositionTable;
+    private final TimeControl timeControl;
+    private final int threads;
+    private final ParallelMode parallelMode;
+    private final SearchParameters parameters;
+    private final int helperIndex;
+    private final Random random;
+    private ForkJoinPool splitPool;
+    private ConcurrentLinkedQueue<MiniMax> splitWorkers;
+    private SplitPoint splitPoint;
+    private AtomicBoolean stopSignal;
+    private int rootDepth;
+    private long startTime;
+    private long nodes;
+    private long researches;
+    private long evaluationCacheHits;
+    private long evaluationCacheMisses;
+    private int rootScore;
+    private boolean stopped;
+    private int[] principalVariation;
+    private MyList<Move> playedVariation;
+
     public MiniMax(final int searchDepth, boolean vsAI) {
-        this.evaluator = new StandardEvaluator();
+        this(searchDepth, vsAI, TimeControl.NONE);
+    }
+
+    /**
+     * Constructor
+     * @param searchDepth maximum depth of the iterative deepening
+     * @param vsAI
+     * @param timeControl time budget of the move
+     */
+    public MiniMax(final int searchDepth, boolean vsAI, final TimeControl timeControl) {
+        this(searchDepth, vsAI, timeControl, DEFAULT_HASH_SIZE);
+    }
+
+    /**
+     * Constructor
+     * @param searchDepth maximum depth of the iterative deepening
+     * @param vsAI
+     * @param timeControl time budget of the move
+     * @param hashSizeInMegabytes size of the transposition table
+     */
+    public MiniMax(final int searchDepth, boolean vsAI, final TimeControl timeControl, final int hashSizeInMegabytes) {
+        this(new Builder(searchDepth, vsAI).setTimeControl(timeControl).setHashSize(hashSizeInMegabytes));
+    }
+
+    /**
+     * Constructor of a search with the settings of the builder.
+     * @param builder
+     */
+    private MiniMax(final Builder builder) {
+        this(true, builder.searchDepth, builder.vsAI, builder.timeControl, builder.threads, builder.parallelMode,
+                builder.parameters, builder.hashSizeInMegabytes, builder.evaluationCacheSize);
+    }
+
+    /**
+     * Constructor
+     * @param randomized false to evaluate without the random term
+     * @param searchDepth
+     * @param vsAI
+     * @param timeControl
+     * @param threads
+     * @param parallelMode
+     * @param parameters
+     * @param hashSizeInMegabytes
+     * @param evaluationCacheSize size of the evaluation cache of each search thread in megabytes
+     */
+    private MiniMax(final boolean randomized, final int searchDepth, boolean vsAI, final TimeControl timeControl, final int threads,
+            final ParallelMode parallelMode, final SearchParameters parameters, final int hashSizeInMegabytes, final int evaluationCacheSize) {
+        this.evaluator = evaluator(randomized, evaluationCacheSize);
+        this.evaluationCacheSize = evaluationCacheSize;
         this.searchDepth = searchDepth;
-        this.vsAI = vsAI;
+        this.detectRepetitions = !vsAI;
+        this.timeControl = timeControl;
+        this.threads = Math.max(1, threads);
+        this.parallelMode = parallelMode;
+        this.parameters = parameters;
+        this.helperIndex = 0;
+        this.random = null;
+        this.moveLists = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+        this.scoreLists = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+        this.pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+        this.pvLength = new int[MAX_PLY + 1];
+        this.moveOrdering = new MoveOrdering(MAX_PLY);
+        this.transpositionTable = new TranspositionTable(hashSizeInMegabytes);
     }
-    
+
+    /**
+     * Creates the evaluator of a search thread: the standard evaluator behind an evaluation cache of its own.
+     * Checkmate is left to the search, so the scores don't depend on the depth and can be cached.
+     * @param randomized
+     * @param cacheSizeInMegabytes
+     * @return
+     */
+    private static CachedEvaluator evaluator(final boolean randomized, final int cacheSizeInMegabytes) {
+        return new CachedEvaluator(new StandardEvaluator(randomized, false), cacheSizeInMegabytes);
+    }
+
+    /**
+     * Creates a search that scores single root moves for ParallelRootSearch.
+     * It evaluates without randomness and forgets everything between the moves,
+     * so the score of a move doesn't depend on what was searched before it.
+     * @param detectRepetitions true to score repeated positions as draws
+     * @param hashSizeInMegabytes
+     * @return
+     */
+    static MiniMax rootMoveSearch(final boolean detectRepetitions, final int hashSizeInMegabytes) {
+        final MiniMax search = new MiniMax(false, MAX_PLY, !detectRepetitions, TimeControl.NONE, 1, ParallelMode.LAZY_SMP, SearchParameters.DEFAULT,
+                hashSizeInMegabytes, DEFAULT_EVALUATION_CACHE_SIZE);
+        search.stopSignal = new AtomicBoolean();
+        return search;
+    }
+
+    /**
+     * Searches one root move to the given depth within the window.
+     * @param position the position before the move
+     * @param move a legal move of the position
+     * @param depth
+     * @param alpha
+     * @param beta
+     * @return score of the move for the side to move before it
+     */
+    int searchRootMove(final BitBoard position, final int move, final int depth, final int alpha, final int beta) {
+        this.transpositionTable.clear();
+        this.moveOrdering.clear();
+        this.evaluator.clear();
+        this.startTime = System.currentTimeMillis();
+        this.nodes = 0;
+        this.stopped = false;
+        this.rootDepth = depth;
+        position.makeMove(move);
+        final int value = -search(position, depth - 1, 1, -beta, -alpha, true);
+        position.unmakeMove(move);
+        return value;
+    }
+
+    /**
+     * Constructor of a helper thread's search. The helper shares the transposition table of the main search
+     * and has its own move lists, move ordering and evaluator.
+     * @param main
+     * @param helperIndex
+     */
+    private MiniMax(final MiniMax main, final int helperIndex) {
+        this(main, helperIndex, TimeControl.NONE, new Random(helperIndex));
+    }
+
+    /**
+     * Constructor of a search that shares the transposition table and the stop signal of the main search.
+     * @param main
+     * @param helperIndex
+     * @param timeControl
+     * @param random for shuffling the root moves or null
+     */
+    private MiniMax(final MiniMax main, final int helperIndex, final TimeControl timeControl, final Random random) {
+        this.evaluator = evaluator(true, main.evaluationCacheSize);
+        this.evaluationCacheSize = main.evaluationCacheSize;
+        this.searchDepth = main.searchDepth;
+        this.detectRepetitions = main.detectRepetitions;
+        this.timeControl = timeControl;
+        this.threads = 1;
+        this.parallelMode = main.parallelMode;
+        this.parameters = main.parameters;
+        this.helperIndex = helperIndex;
+        this.random = random;
+        this.moveLists = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+        this.scoreLists = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+        this.pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+        this.pvLength = new int[MAX_PLY + 1];
+        this.moveOrdering = new MoveOrdering(MAX_PLY);
+        this.transpositionTable = main.transpositionTable;
+        this.splitPool = main.splitPool;
+        this.splitWorkers = main.splitWorkers;
+        this.stopSignal = main.stopSignal;
+    }
+
     /**
      * Returns the best move that the algorithm got.
      * @param board
-     * @return 
+     * @return
      */
     @Override
     public Move execute(Board board) {
         System.out.println("Thinking with depth " +this.searchDepth);
-        final long startTime = System.currentTimeMillis();
-        Move bestMove = Move.NULL_MOVE;
-        int max = Integer.MIN_VALUE;
-        int min = Integer.MAX_VALUE;
-        int value; 
-        for(final Move move : board.currentPlayer().getLegalMoves()) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if (moveTransition.getMoveStatus().isDone()) {
-                value = board.currentPlayer().getSide().isWhite() ? min(moveTransition.getTransitionBoard(), searchDepth - 1, Integer.MIN_VALUE, Integer.MAX_VALUE) : max(moveTransition.getTransitionBoard(), searchDepth - 1, Integer.MIN_VALUE, Integer.MAX_VALUE);
-                
-                if (board.currentPlayer().getSide().isWhite() && value >= max) {
-                    max = value;
-                    bestMove = move;
-                } else if (board.currentPlayer().getSide().isBlack() && value <= min) {
-                    min = value;
-                    bestMove = move;                    
+        final BitBoard position = BitBoard.fromBoard(board);
+        this.stopSignal = new AtomicBoolean();
+        this.evaluator.resetCounters();
+        this.evaluationCacheHits = 0;
+        this.evaluationCacheMisses = 0;
+        final int bestMove;
+        if (this.threads > 1 && this.parallelMode == ParallelMode.YOUNG_BROTHERS_WAIT) {
+            bestMove = splitSearch(position);
+        } else {
+            final MiniMax[] helperSearches = new MiniMax[this.threads - 1];
+            final Thread[] helpers = startHelpers(position, helperSearches);
+            bestMove = iterate(position, 1);
+            this.stopSignal.set(true);
+            for (final Thread helper : helpers) {
+                try {
+                    helper.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
                 }
             }
+            for (final MiniMax helper : helperSearches) {
+                countEvaluations(helper);
+            }
         }
-        final long executionTime = System.currentTimeMillis() - startTime;
+        countEvaluations(this);
+        this.playedVariation = toMoves(this.principalVariation, board);
+        final long executionTime = elapsedTime();
         System.out.println("Move executed in " + executionTime + " milliseconds");
-        return bestMove;
+        return PackedMove.toMove(bestMove, board);
     }
-    
+
     /**
-     * Returns true if the game state is at an end.
-     * @param board
-     * @return 
+     * Number of nodes the main search thread visited in the last search.
+     * @return
+     */
+    public long getNodeCount() {
+        return this.nodes;
+    }
+
+    /**
+     * Number of evaluations the evaluation caches of all search threads answered in the last search.
+     * @return
+     */
+    public long getEvaluationCacheHits() {
+        return this.evaluationCacheHits;
+    }
+
+    /**
+     * Number of evaluations of all search threads in the last search that were not in the evaluation caches.
+     * @return
      */
-    private boolean gameEnd(Board board) {
-        if(vsAI) return board.currentPlayer().isInCheckMate() || board.currentPlayer().isInStaleMateVsHuman();
-        return board.currentPlayer().isInCheckMate() || board.currentPlayer().isInStaleMate();
-    }    
-    
+    public long getEvaluationCacheMisses() {
+        return this.evaluationCacheMisses;
+    }
+
+    /**
+     * Adds the evaluation cache counters of a search thread to the totals of the last search.
+     * @param search
+     */
+    private void countEvaluations(final MiniMax search) {
+        this.evaluationCacheHits += search.evaluator.getHits();
+        this.evaluationCacheMisses += search.evaluator.getMisses();
+    }
+
+    /**
+     * Number of times in the last search that the root was searched again because
+     * the score fell outside the aspiration window.
+     * @return
+     */
+    public long getResearchCount() {
+        return this.researches;
+    }
+
+    /**
+     * Returns the principal variation of the last search, starting with the played move.
+     * The moves after the first one are the replies that the search expects.
+     * @return
+     */
+    public MyList<Move> getPrincipalVariation() {
+        return this.playedVariation;
+    }
+
     /**
-     * The min portion of the algorithm.
+     * Turns a line of packed moves into moves of the boards along the line.
+     * @param line
      * @param board
+     * @return
+     */
+    private static MyList<Move> toMoves(final int[] line, final Board board) {
+        final MyList<Move> moves = new MyList<>();
+        Board current = board;
+        for (final int packedMove : line) {
+            final Move move = PackedMove.toMove(packedMove, current);
+            final MoveTransition transition = current.currentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                break;
+            }
+            moves.add(move);
+            current = transition.getTransitionBoard();
+        }
+        return moves;
+    }
+
+    /**
+     * Starts the helper threads of the Lazy SMP search. Every other helper starts one ply deeper
+     * and all of them search the root moves in a different order, so they fill the shared
+     * transposition table with different parts of the tree.
+     * @param position
+     * @param helperSearches array for the searches of the helpers
+     * @return the started threads
+     */
+    private Thread[] startHelpers(final BitBoard position, final MiniMax[] helperSearches) {
+        final Thread[] helpers = new Thread[helperSearches.length];
+        for (int i = 0; i < helpers.length; i++) {
+            final MiniMax helper = new MiniMax(this, i + 1);
+            helperSearches[i] = helper;
+            final BitBoard helperPosition = position.copy();
+            helpers[i] = new Thread(() -> helper.iterate(helperPosition, 1 + helper.helperIndex % 2), "MiniMax helper " + helper.helperIndex);
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+        return helpers;
+    }
+
+    /**
+     * Runs the iterative deepening in a ForkJoinPool so that the nodes can split their younger moves between the threads.
+     * @param position
+     * @return the best move
+     */
+    private int splitSearch(final BitBoard position) {
+        this.splitPool = new ForkJoinPool(this.threads);
+        this.splitWorkers = new ConcurrentLinkedQueue<>();
+        try {
+            return this.splitPool.invoke(ForkJoinTask.adapt(() -> iterate(position, 1)));
+        } finally {
+            this.splitPool.shutdown();
+            for (final MiniMax worker : this.splitWorkers) {
+                countEvaluations(worker);
+            }
+            this.splitPool = null;
+            this.splitWorkers = null;
+        }
+    }
+
+    /**
+     * Returns true if the younger moves of a node are searched in parallel.
      * @param searchDepth
+     * @param next index of the first younger move
+     * @param count
+     * @return
+     */
+    private boolean canSplit(final int searchDepth, final int next, final int count) {
+        return this.splitPool != null && searchDepth >= MIN_SPLIT_DEPTH && next < count;
+    }
+
+    /**
+     * Searches the younger moves of a node in parallel and waits for them. The results are in the split point.
+     * @param position
+     * @param moves the moves in the order they should be started
+     * @param scores ordering scores of the moves, or null if no move is reduced
+     * @param from index of the first younger move
+     * @param count
+     * @param searchDepth depth of the node
+     * @param ply
+     * @param split
+     */
+    private void searchYoungerMoves(final BitBoard position, final int[] moves, final int[] scores, final int from, final int count,
+            final int searchDepth, final int ply, final SplitPoint split) {
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(count - from);
+        for (int i = from; i < count; i++) {
+            final int move = moves[i];
+            final int reduction = scores != null && MoveOrdering.canReduce(scores[i]) ? this.parameters.lateMoveReduction(searchDepth, i) : 0;
+            tasks.add(ForkJoinTask.adapt(() -> searchYoungerMove(position, move, searchDepth, ply, reduction, split)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        if (this.stopSignal.get() || this.splitPoint != null && this.splitPoint.isAborted()) {
+            this.stopped = true;
+        }
+    }
+
+    /**
+     * Searches a younger move with a worker of its own on a copy of the position.
+     * The window is taken from the split point when the search starts, so it has the
+     * scores of the moves that were searched before.
+     * @param position the position of the node, not changed
+     * @param move
+     * @param searchDepth depth of the node
+     * @param ply
+     * @param reduction depth reduction of the move if it doesn't give check
+     * @param split
+     */
+    private void searchYoungerMove(final BitBoard position, final int move, final int searchDepth, final int ply, final int reduction, final SplitPoint split) {
+        if (split.isAborted()) {
+            return;
+        }
+        final BitBoard child = position.copy();
+        child.makeMove(move);
+        final MiniMax worker = acquireWorker(split);
+        try {
+            final int childReduction = reduction > 0 && !child.isInCheck(child.getSideToMove()) ? reduction : 0;
+            final int value = worker.searchMove(child, searchDepth - 1, ply + 1, split.getAlpha(), split.getBeta(), false, childReduction);
+            if (!worker.stopped && !split.isAborted()) {
+                split.update(value, move, worker.line(ply, move));
+            }
+        } finally {
+            this.splitWorkers.add(worker);
+        }
+    }
+
+    /**
+     * Takes an idle worker or creates a new one and sets it to search below the split point.
+     * @param split
+     * @return
+     */
+    private MiniMax acquireWorker(final SplitPoint split) {
+        MiniMax worker = this.splitWorkers.poll();
+        if (worker == null) {
+            worker = new MiniMax(this, 0, this.timeControl, null);
+        }
+        worker.splitPoint = split;
+        worker.stopSignal = this.stopSignal;
+        worker.rootDepth = this.rootDepth;
+        worker.startTime = this.startTime;
+        worker.stopped = false;
+        return worker;
+    }
+
+    /**
+     * Iterative deepening from the first depth to the search depth.
+     * @param position
+     * @param firstDepth
+     * @return the best move of the last completed iteration
+     */
+    private int iterate(final BitBoard position, final int firstDepth) {
+        this.startTime = System.currentTimeMillis();
+        this.nodes = 0;
+        this.researches = 0;
+        this.stopped = false;
+        this.principalVariation = new int[0];
+        int bestMove = PackedMove.NONE;
+        int score = 0;
+        for (int depth = firstDepth; depth <= this.searchDepth; depth++) {
+            if (depth > 1 && !this.timeControl.canStartIteration(elapsedTime())) {
+                break;
+            }
+            final int move = aspirationSearch(position, depth, bestMove, score);
+            if (this.stopped) {
+                break;
+            }
+            bestMove = move;
+            score = this.rootScore;
+            this.principalVariation = line(0, PackedMove.NONE);
+        }
+        return bestMove;
+    }
+
+    /**
+     * Searches the root with a window around the score of the previous iteration. When the score
+     * falls outside the window the failing side of the window is widened and the root is searched again.
+     * @param position
+     * @param depth
+     * @param previousBest best move of the previous iteration or PackedMove.NONE
+     * @param previousScore score of the previous iteration
+     * @return the best move or PackedMove.NONE
+     */
+    private int aspirationSearch(final BitBoard position, final int depth, final int previousBest, final int previousScore) {
+        int window = ASPIRATION_WINDOW;
+        final boolean fullWindow = previousBest == PackedMove.NONE || !this.parameters.hasAspirationWindows();
+        int alpha = fullWindow ? -INFINITY : aspirationBound(previousScore, -window);
+        int beta = fullWindow ? INFINITY : aspirationBound(previousScore, window);
+        while (true) {
+            final int move = searchRoot(position, depth, previousBest, alpha, beta);
+            if (this.stopped || move == PackedMove.NONE) {
+                return move;
+            }
+            if (this.rootScore <= alpha && alpha > -INFINITY) {
+                window *= 2;
+                alpha = aspirationBound(previousScore, -window);
+            } else if (this.rootScore >= beta && beta < INFINITY) {
+                window *= 2;
+                beta = aspirationBound(previousScore, window);
+            } else {
+                return move;
+            }
+            this.researches++;
+        }
+    }
+
+    /**
+     * Returns a bound of an aspiration window, or an infinite bound if the window has grown too wide.
+     * @param score
+     * @param offset distance of the bound from the score
+     * @return
+     */
+    private static int aspirationBound(final int score, final int offset) {
+        if (Math.abs(offset) > MAX_ASPIRATION_WINDOW) {
+            return offset < 0 ? -INFINITY : INFINITY;
+        }
+        return (int) Math.max(-INFINITY, Math.min(INFINITY, (long) score + offset));
+    }
+
+    /**
+     * Searches the moves of the root to the given depth. The best move of the previous iteration is searched first.
+     * The score of the root is left in rootScore.
+     * @param position
+     * @param depth
+     * @param previousBest
      * @param alpha
      * @param beta
-     * @return 
+     * @return the best move or PackedMove.NONE
      */
-    public int min(final Board board, final int searchDepth, int alpha, int beta) {
-        if(searchDepth == 0 || gameEnd(board)) {
-            return this.evaluator.evaluate(board, searchDepth);
+    private int searchRoot(final BitBoard position, final int depth, final int previousBest, int alpha, final int beta) {
+        this.rootDepth = depth;
+        this.pvLength[0] = 0;
+        int bestMove = PackedMove.NONE;
+        int bestValue = -INFINITY;
+        final int[] moves = this.moveLists[0];
+        final int count = MoveGenerator.generateLegalMoves(position, moves);
+        moveToFront(moves, count, previousBest);
+        if (this.random != null) {
+            shuffle(moves, previousBest == PackedMove.NONE ? 0 : 1, count);
         }
-        int val = Integer.MAX_VALUE;
-        for(final Move move : board.currentPlayer().getLegalMoves()) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if(moveTransition.getMoveStatus().isDone()) {
-                val = Math.min(val, max(moveTransition.getTransitionBoard(), searchDepth - 1, alpha, beta));
-                beta = Math.min(beta, val);
-                if(alpha >= beta) return val;
+        for(int i = 0; i < count; i++) {
+            final int move = moves[i];
+            position.makeMove(move);
+            final int value = searchMove(position, depth - 1, 1, alpha, beta, bestMove == PackedMove.NONE, 0);
+            position.unmakeMove(move);
+            if (this.stopped) {
+                return PackedMove.NONE;
+            }
+            if (value > bestValue || bestMove == PackedMove.NONE) {
+                bestValue = value;
+                bestMove = move;
+                if (value > alpha) {
+                    alpha = value;
+                    updatePrincipalVariation(0, move);
+                }
+            }
+            if (alpha >= beta) {
+                break;
+            }
+            if (canSplit(depth, i + 1, count)) {
+                final SplitPoint split = new SplitPoint(this.splitPoint, alpha, beta, bestValue, bestMove);
+                searchYoungerMoves(position, moves, null, i + 1, count, depth, 0, split);
+                if (this.stopped) {
+                    return PackedMove.NONE;
+                }
+                bestValue = split.getValue();
+                bestMove = split.getBestMove();
+                copyLine(0, split.getLine());
+                break;
             }
         }
-        return val;
+        this.rootScore = bestValue;
+        return bestMove;
     }
-    
-     /**
-     * The max portion of the algorithm.
-     * @param board
+
+    /**
+     * Searches a move that has been made. The first move of a node gets the full window, the others
+     * get a zero window first and are searched again with the full window if they beat alpha.
+     * A reduced move that beats alpha is searched again to the full depth before that.
+     * @param position the position after the move
+     * @param searchDepth remaining depth after the move
+     * @param ply distance of the position from the root
+     * @param alpha
+     * @param beta
+     * @param first true for the first move of the node
+     * @param reduction late move reduction of the zero window search
+     * @return score of the move for the side that made it
+     */
+    private int searchMove(final BitBoard position, final int searchDepth, final int ply, final int alpha, final int beta, final boolean first, final int reduction) {
+        if (first) {
+            return -search(position, searchDepth, ply, -beta, -alpha, true);
+        }
+        int value = -search(position, searchDepth - reduction, ply, -alpha - 1, -alpha, true);
+        if (reduction > 0 && value > alpha && !this.stopped) {
+            value = -search(position, searchDepth, ply, -alpha - 1, -alpha, true);
+        }
+        if (value > alpha && value < beta && !this.stopped) {
+            value = -search(position, searchDepth, ply, -beta, -alpha, true);
+        }
+        return value;
+    }
+
+    /**
+     * Makes a move followed by the principal variation of the next ply the principal variation of the ply.
+     * @param ply
+     * @param move
+     */
+    private void updatePrincipalVariation(final int ply, final int move) {
+        this.pvTable[ply][0] = move;
+        System.arraycopy(this.pvTable[ply + 1], 0, this.pvTable[ply], 1, this.pvLength[ply + 1]);
+        this.pvLength[ply] = this.pvLength[ply + 1] + 1;
+    }
+
+    /**
+     * Returns a copy of the principal variation of a ply, or of the next ply after the given move.
+     * @param ply
+     * @param move the move before the line or PackedMove.NONE to copy the line of the ply
+     * @return
+     */
+    private int[] line(final int ply, final int move) {
+        if (move == PackedMove.NONE) {
+            return Arrays.copyOf(this.pvTable[ply], this.pvLength[ply]);
+        }
+        final int[] line = new int[this.pvLength[ply + 1] + 1];
+        line[0] = move;
+        System.arraycopy(this.pvTable[ply + 1], 0, line, 1, this.pvLength[ply + 1]);
+        return line;
+    }
+
+    /**
+     * Sets the principal variation of a ply if the line is not null.
+     * @param ply
+     * @param line
+     */
+    private void copyLine(final int ply, final int[] line) {
+        if (line != null) {
+            System.arraycopy(line, 0, this.pvTable[ply], 0, line.length);
+            this.pvLength[ply] = line.length;
+        }
+    }
+
+    /**
+     * Milliseconds since the search started.
+     * @return
+     */
+    private long elapsedTime() {
+        return System.currentTimeMillis() - this.startTime;
+    }
+
+    /**
+     * Counts the node and stops the search when the time is up.
+     * The first iteration always completes so there is a move to play.
+     * @return true if the search has been stopped
+     */
+    private boolean checkStop() {
+        if (++this.nodes % TIME_CHECK_INTERVAL == 0) {
+            if (this.stopSignal.get() || this.splitPoint != null && this.splitPoint.isAborted()) {
+                this.stopped = true;
+            } else if (this.rootDepth > 1 && this.timeControl.isTimeUp(elapsedTime())) {
+                this.stopped = true;
+                this.stopSignal.set(true);
+            }
+        }
+        return this.stopped;
+    }
+
+    /**
+     * Moves a move to the front of the list.
+     * @param moves
+     * @param count
+     * @param move
+     */
+    private static void moveToFront(final int[] moves, final int count, final int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                moves[i] = moves[0];
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Shuffles a part of the move list of a helper thread.
+     * @param moves
+     * @param from first index to shuffle
+     * @param count
+     */
+    private void shuffle(final int[] moves, final int from, final int count) {
+        for (int i = count - 1; i > from; i--) {
+            final int j = from + this.random.nextInt(i - from + 1);
+            final int move = moves[i];
+            moves[i] = moves[j];
+            moves[j] = move;
+        }
+    }
+
+    /**
+     * Returns true if the game is drawn without looking at the moves: the position repeats a position of
+     * the search path or the game, or only the kings are left. Repetitions are not looked for when two AIs play.
+     * Checkmate and stalemate are found when a node has no legal moves.
+     * @param position
+     * @return
+     */
+    private boolean isDraw(BitBoard position) {
+        return this.detectRepetitions && position.isRepetition() || Long.bitCount(position.getSideOccupancy(BitBoard.WHITE)) == 1 && Long.bitCount(position.getSideOccupancy(BitBoard.BLACK)) == 1;
+    }
+
+    /**
+     * Returns true if the stored entry of the position was searched deep enough
+     * and its bound settles the node without searching it again.
+     * @param data the entry of the position
      * @param searchDepth
+     * @param ply distance from the root
+     * @param alpha
+     * @param beta
+     * @return
+     */
+    private static boolean isTranspositionCutoff(final long data, final int searchDepth, final int ply, final int alpha, final int beta) {
+        if (data == TranspositionTable.NO_ENTRY || TranspositionTable.getDepth(data) < searchDepth) {
+            return false;
+        }
+        final int score = fromTableScore(TranspositionTable.getScore(data), ply);
+        final int bound = TranspositionTable.getBound(data);
+        return bound == TranspositionTable.EXACT
+                || bound == TranspositionTable.LOWER_BOUND && score >= beta
+                || bound == TranspositionTable.UPPER_BOUND && score <= alpha;
+    }
+
+    /**
+     * Returns the bound type of a searched score.
+     * @param value
+     * @param alpha alpha when the node was entered
+     * @param beta beta when the node was entered
+     * @return
+     */
+    private static int bound(final int value, final int alpha, final int beta) {
+        if (value <= alpha) {
+            return TranspositionTable.UPPER_BOUND;
+        }
+        return value >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+    }
+
+    /**
+     * Negamax search of a node with the principal variation search of its moves.
+     * @param position
+     * @param searchDepth remaining depth
+     * @param ply distance from the root
      * @param alpha
      * @param beta
-     * @return 
+     * @param nullMoveAllowed false right after a null move
+     * @return score for the side to move
      */
-    public int max(final Board board, final int searchDepth, int alpha, int beta) {
-        if(searchDepth == 0 || gameEnd(board)) {
-            return this.evaluator.evaluate(board, searchDepth);
+    private int search(final BitBoard position, final int searchDepth, final int ply, int alpha, final int beta, final boolean nullMoveAllowed) {
+        if(checkStop()) {
+            return 0;
+        }
+        this.pvLength[ply] = 0;
+        if(searchDepth <= 0) {
+            return quiesce(position, ply, alpha, beta);
         }
-        int val = Integer.MIN_VALUE;
-        for(final Move move : board.currentPlayer().getLegalMoves()) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if(moveTransition.getMoveStatus().isDone()) {
-                val = Math.max(val, min(moveTransition.getTransitionBoard(), searchDepth - 1, alpha, beta));
-                alpha = Math.max(alpha, val);
-                if(alpha >= beta) return val;
+        if(isDraw(position)) {
+            return DRAW_SCORE;
+        }
+        final long key = position.getZobristKey();
+        final long entry = this.transpositionTable.probe(key);
+        if (beta - alpha == 1 && isTranspositionCutoff(entry, searchDepth, ply, alpha, beta)) {
+            return fromTableScore(TranspositionTable.getScore(entry), ply);
+        }
+        final int side = position.getSideToMove();
+        final boolean inCheck = position.isInCheck(side);
+        if (nullMoveAllowed && beta - alpha == 1 && !inCheck && this.parameters.canTryNullMove(searchDepth) && position.hasNonPawnMaterial(side)) {
+            position.makeNullMove();
+            final int value = -search(position, Math.max(0, searchDepth - 1 - this.parameters.nullMoveReduction(searchDepth)), ply + 1, -beta, -beta + 1, false);
+            position.unmakeNullMove();
+            if (this.stopped) {
+                return 0;
+            }
+            if (value >= beta) {
+                return beta;
+            }
+        }
+        final int alphaStart = alpha;
+        int val = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        final int[] moves = this.moveLists[ply];
+        final int[] scores = this.scoreLists[ply];
+        final int count = MoveGenerator.generateLegalMoves(position, moves);
+        this.moveOrdering.scoreMoves(position, moves, scores, count, ply, TranspositionTable.getMove(entry));
+        for(int i = 0; i < count; i++) {
+            final int move = MoveOrdering.pickNext(moves, scores, count, i);
+            position.makeMove(move);
+            int reduction = inCheck || !MoveOrdering.canReduce(scores[i]) ? 0 : this.parameters.lateMoveReduction(searchDepth, i);
+            if (reduction > 0 && position.isInCheck(position.getSideToMove())) {
+                reduction = 0;
+            }
+            final int value = searchMove(position, searchDepth - 1, ply + 1, alpha, beta, i == 0, reduction);
+            position.unmakeMove(move);
+            if (this.stopped) {
+                return 0;
+            }
+            if (value > val) {
+                val = value;
+                bestMove = move;
+                if (value > alpha) {
+                    alpha = value;
+                    updatePrincipalVariation(ply, move);
+                }
             }
+            if(alpha >= beta) {
+                this.moveOrdering.cutoff(move, ply, searchDepth);
+                break;
+            }
+            if (canSplit(searchDepth, i + 1, count)) {
+                for (int j = i + 1; j < count; j++) {
+                    MoveOrdering.pickNext(moves, scores, count, j);
+                }
+                final SplitPoint split = new SplitPoint(this.splitPoint, alpha, beta, val, bestMove);
+                searchYoungerMoves(position, moves, inCheck ? null : scores, i + 1, count, searchDepth, ply, split);
+                if (this.stopped) {
+                    return 0;
+                }
+                val = split.getValue();
+                bestMove = split.getBestMove();
+                copyLine(ply, split.getLine());
+                if (val >= beta) {
+                    this.moveOrdering.cutoff(bestMove, ply, searchDepth);
+                }
+                break;
+            }
+        }
+        if (count == 0) {
+            return inCheck ? mateScore(ply) : DRAW_SCORE;
+        }
+        this.transpositionTable.store(key, bestMove, searchDepth, toTableScore(val, ply), bound(val, alphaStart, beta));
+        return val;
+    }
+
+    /**
+     * Quiescence search. Only captures and promotions are searched so the leaves are evaluated
+     * in quiet positions. The side to move can stand pat with the static evaluation, and
+     * captures that could not raise the score near alpha even with the captured piece are skipped.
+     * Captures that lose material by static exchange evaluation are ordered last and not searched.
+     * @param position
+     * @param ply distance from the root
+     * @param alpha
+     * @param beta
+     * @return score for the side to move
+     */
+    private int quiesce(final BitBoard position, final int ply, int alpha, final int beta) {
+        if(checkStop()) {
+            return 0;
+        }
+        this.pvLength[ply] = 0;
+        if (position.isInCheck(position.getSideToMove()) && !MoveGenerator.hasLegalMoves(position, this.moveLists[ply])) {
+            return mateScore(ply);
+        }
+        final int standPat = evaluate(position, 0);
+        if (standPat >= beta || ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        alpha = Math.max(alpha, standPat);
+        int val = standPat;
+        final int[] moves = this.moveLists[ply];
+        final int[] scores = this.scoreLists[ply];
+        final int count = MoveGenerator.generateLegalCaptures(position, moves);
+        this.moveOrdering.scoreMoves(position, moves, scores, count, ply, PackedMove.NONE);
+        for(int i = 0; i < count; i++) {
+            final int move = MoveOrdering.pickNext(moves, scores, count, i);
+            if (MoveOrdering.isLosingCapture(scores[i])) {
+                break;
+            }
+            if (standPat + materialGain(move) + DELTA_MARGIN <= alpha) {
+                continue;
+            }
+            position.makeMove(move);
+            final int value = -quiesce(position, ply + 1, -beta, -alpha);
+            position.unmakeMove(move);
+            if (this.stopped) {
+                return 0;
+            }
+            val = Math.max(val, value);
+            alpha = Math.max(alpha, val);
+            if(alpha >= beta) {
+                break;
+            }
+        }
+        return val;
+    }
+
+    /**
+     * Static evaluation for the side to move.
+     * @param position
+     * @param depth
+     * @return
+     */
+    private int evaluate(final BitBoard position, final int depth) {
+        final int score = this.evaluator.evaluate(position, depth);
+        return position.getSideToMove() == BitBoard.WHITE ? score : -score;
+    }
+
+    /**
+     * Score of the side to move when it is checkmated. A mate nearer the root is worth more to the winner.
+     * @param ply distance from the root
+     * @return
+     */
+    private static int mateScore(final int ply) {
+        return -MATE_SCORE + ply;
+    }
+
+    /**
+     * Mate scores are stored in the transposition table as distances from the node instead of the root
+     * so that they stay right when the position is reached at another ply.
+     * @param score
+     * @param ply
+     * @return
+     */
+    private static int toTableScore(final int score, final int ply) {
+        if (score >= MATE_SCORE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE_SCORE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Converts a score of the transposition table back to a score relative to the root.
+     * @param score
+     * @param ply
+     * @return
+     */
+    private static int fromTableScore(final int score, final int ply) {
+        if (score >= MATE_SCORE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE_SCORE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * The most material a capture or promotion can win.
+     * @param move
+     * @return
+     */
+    private static int materialGain(final int move) {
+        int gain = 0;
+        if (PackedMove.isCapture(move)) {
+            gain += StaticExchange.pieceValue(BitBoard.typeOf(PackedMove.getCapturedPiece(move)));
+        }
+        if (PackedMove.isPromotion(move)) {
+            gain += StaticExchange.pieceValue(BitBoard.QUEEN) - StaticExchange.pieceValue(BitBoard.PAWN);
+        }
+        return gain;
+    }
+
+    /**
+     * Builder of a search with more settings than the constructors take. Without settings the search
+     * has no time limit, one thread, the default selective search, a 16 MB transposition table
+     * and a 2 MB evaluation cache per thread.
+     */
+    public static class Builder {
+        private final int searchDepth;
+        private final boolean vsAI;
+        private TimeControl timeControl = TimeControl.NONE;
+        private int threads = 1;
+        private ParallelMode parallelMode = ParallelMode.LAZY_SMP;
+        private SearchParameters parameters = SearchParameters.DEFAULT;
+        private int hashSizeInMegabytes = DEFAULT_HASH_SIZE;
+        private int evaluationCacheSize = DEFAULT_EVALUATION_CACHE_SIZE;
+
+        /**
+         * Constructor
+         * @param searchDepth maximum depth of the iterative deepening
+         * @param vsAI
+         */
+        public Builder(final int searchDepth, final boolean vsAI) {
+            this.searchDepth = searchDepth;
+            this.vsAI = vsAI;
+        }
+
+        /**
+         * Sets the time budget of the move.
+         * @param timeControl
+         * @return
+         */
+        public Builder setTimeControl(final TimeControl timeControl) {
+            this.timeControl = timeControl;
+            return this;
+        }
+
+        /**
+         * Sets the number of search threads.
+         * @param threads
+         * @return
+         */
+        public Builder setThreads(final int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Sets how the threads share the search.
+         * @param parallelMode
+         * @return
+         */
+        public Builder setParallelMode(final ParallelMode parallelMode) {
+            this.parallelMode = parallelMode;
+            return this;
+        }
+
+        /**
+         * Sets the settings of the selective search.
+         * @param parameters
+         * @return
+         */
+        public Builder setSearchParameters(final SearchParameters parameters) {
+            this.parameters = parameters;
+            return this;
+        }
+
+        /**
+         * Sets the size of the transposition table.
+         * @param hashSizeInMegabytes
+         * @return
+         */
+        public Builder setHashSize(final int hashSizeInMegabytes) {
+            this.hashSizeInMegabytes = hashSizeInMegabytes;
+            return this;
+        }
+
+        /**
+         * Sets the size of the evaluation cache that every search thread has.
+         * @param evaluationCacheSize size in megabytes
+         * @return
+         */
+        public Builder setEvaluationCacheSize(final int evaluationCacheSize) {
+            this.evaluationCacheSize = evaluationCacheSize;
+            return this;
+        }
+
+        public MiniMax build() {
+            return new MiniMax(this);
         }
-        return val;   
     }
 }
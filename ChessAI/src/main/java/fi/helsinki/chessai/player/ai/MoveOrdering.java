@@ -0,0 +1,192 @@
+package fi.helsinki.chessai.player.ai;
+
+import fi.helsinki.chessai.board.BitBoard;
+import fi.helsinki.chessai.board.PackedMove;
+import fi.helsinki.chessai.board.StaticExchange;
+import java.util.Arrays;
+
+/**
+ * Orders the moves of a node so that the moves most likely to cause a cutoff are searched first.
+ * The move from the transposition table comes first, then captures by most valuable victim and
+ * least valuable attacker, then the two killer moves of the ply, then the captures that lose material
+ * by static exchange evaluation and last the quiet moves by their history score.
+ * The moves are not sorted up front, pickNext selects the best remaining move when the search needs it.
+ * @author janne
+ */
+public final class MoveOrdering {
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int FIRST_KILLER_SCORE = (1 << 27) + 1;
+    private static final int SECOND_KILLER_SCORE = 1 << 27;
+    private static final int BAD_CAPTURE_SCORE = 1 << 26;
+    private static final int HISTORY_LIMIT = 1 << 26;
+
+    private final int[][] killers;
+    private final int[][] history;
+    private final int[] exchangeGains;
+
+    /**
+     * Constructor
+     * @param maxPly number of plies there are killer moves for
+     */
+    public MoveOrdering(final int maxPly) {
+        this.killers = new int[maxPly][2];
+        this.history = new int[12][64];
+        this.exchangeGains = new int[StaticExchange.MAX_EXCHANGE];
+    }
+
+    /**
+     * Gives every move a score that tells how early it should be searched. Captures are ordered only by MVV-LVA.
+     * @param moves
+     * @param scores array for the scores of the moves
+     * @param count number of moves
+     * @param ply distance from the root
+     * @param hashMove tiles of the move stored in the transposition table
+     */
+    public void scoreMoves(final int[] moves, final int[] scores, final int count, final int ply, final int hashMove) {
+        scoreMoves(null, moves, scores, count, ply, hashMove);
+    }
+
+    /**
+     * Gives every move a score that tells how early it should be searched.
+     * @param position position of the moves, used to find the losing captures, or null
+     * @param moves
+     * @param scores array for the scores of the moves
+     * @param count number of moves
+     * @param ply distance from the root
+     * @param hashMove tiles of the move stored in the transposition table
+     */
+    public void scoreMoves(final BitBoard position, final int[] moves, final int[] scores, final int count, final int ply, final int hashMove) {
+        for (int i = 0; i < count; i++) {
+            scores[i] = scoreMove(position, moves[i], ply, hashMove);
+        }
+    }
+
+    /**
+     * Returns the score of a move.
+     * @param position
+     * @param move
+     * @param ply
+     * @param hashMove
+     * @return
+     */
+    private int scoreMove(final BitBoard position, final int move, final int ply, final int hashMove) {
+        if (TranspositionTable.sameMove(move, hashMove)) {
+            return HASH_MOVE_SCORE;
+        }
+        if (PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+            if (position != null && StaticExchange.isLosingCapture(position, move, this.exchangeGains)) {
+                return BAD_CAPTURE_SCORE + mvvLva(move);
+            }
+            return CAPTURE_SCORE + mvvLva(move);
+        }
+        if (move == this.killers[ply][0]) {
+            return FIRST_KILLER_SCORE;
+        }
+        if (move == this.killers[ply][1]) {
+            return SECOND_KILLER_SCORE;
+        }
+        return this.history[PackedMove.getMovedPiece(move)][PackedMove.getTo(move)];
+    }
+
+    /**
+     * Most valuable victim, least valuable attacker. A promotion counts as winning a queen.
+     * @param move
+     * @return
+     */
+    static int mvvLva(final int move) {
+        int victim = PackedMove.isCapture(move) ? BitBoard.typeOf(PackedMove.getCapturedPiece(move)) + 1 : 0;
+        if (PackedMove.isPromotion(move)) {
+            victim += BitBoard.QUEEN;
+        }
+        return victim * 8 - BitBoard.typeOf(PackedMove.getMovedPiece(move));
+    }
+
+    /**
+     * Returns true if the move of the score may be searched with a reduced depth: a quiet move that
+     * is neither the hash move nor a killer, or a losing capture.
+     * @param score
+     * @return
+     */
+    public static boolean canReduce(final int score) {
+        return score < SECOND_KILLER_SCORE;
+    }
+
+    /**
+     * Returns true if the score is the score of a capture that loses material.
+     * @param score
+     * @return
+     */
+    public static boolean isLosingCapture(final int score) {
+        return score >= BAD_CAPTURE_SCORE && score < SECOND_KILLER_SCORE;
+    }
+
+    /**
+     * Swaps the best scored move of the remaining moves to the index and returns it.
+     * @param moves
+     * @param scores
+     * @param count
+     * @param index the moves before this have already been searched
+     * @return
+     */
+    public static int pickNext(final int[] moves, final int[] scores, final int count, final int index) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        final int move = moves[best];
+        final int score = scores[best];
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+        moves[index] = move;
+        scores[index] = score;
+        return move;
+    }
+
+    /**
+     * Remembers a quiet move that caused a cutoff as a killer of the ply and raises its history score.
+     * @param move
+     * @param ply
+     * @param depth remaining depth of the node
+     */
+    public void cutoff(final int move, final int ply, final int depth) {
+        if (PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+            return;
+        }
+        if (this.killers[ply][0] != move) {
+            this.killers[ply][1] = this.killers[ply][0];
+            this.killers[ply][0] = move;
+        }
+        final int piece = PackedMove.getMovedPiece(move);
+        final int to = PackedMove.getTo(move);
+        this.history[piece][to] += depth * depth;
+        if (this.history[piece][to] >= HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    /**
+     * Forgets the killer moves and the history scores.
+     */
+    public void clear() {
+        for (final int[] plyKillers : this.killers) {
+            Arrays.fill(plyKillers, PackedMove.NONE);
+        }
+        for (final int[] pieceHistory : this.history) {
+            Arrays.fill(pieceHistory, 0);
+        }
+    }
+
+    /**
+     * Halves the history scores so they stay below the killer scores.
+     */
+    private void ageHistory() {
+        for (final int[] pieceHistory : this.history) {
+            for (int square = 0; square < 64; square++) {
+                pieceHistory[square] /= 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package fi.helsinki.chessai.player.ai;
+
+/**
+ * How MiniMax uses more than one search thread.
+ * @author janne
+ */
+public enum ParallelMode {
+    /**
+     * Helper threads search the whole tree on their own and share only the transposition table.
+     */
+    LAZY_SMP,
+    /**
+     * The younger moves of a node are searched in parallel after the eldest move has been searched.
+     */
+    YOUNG_BROTHERS_WAIT
+}
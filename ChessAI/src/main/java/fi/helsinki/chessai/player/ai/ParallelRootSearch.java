@@ -0,0 +1,183 @@
+package fi.helsinki.chessai.player.ai;
+
+import fi.helsinki.chessai.board.BitBoard;
+import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.board.Move;
+import fi.helsinki.chessai.board.MoveGenerator;
+import fi.helsinki.chessai.board.PackedMove;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Deterministic parallel search that splits the root moves between the threads of a ForkJoinPool.
+ * The first move of the root is searched alone with a full window and its score is the bound for
+ * the other moves. They are searched in parallel with a null window around the bound and a move
+ * that beats the bound is searched again with a window that gives its exact score.
+ * Every root move is searched with an empty transposition table, no killer or history moves and
+ * an evaluation without randomness, so its score doesn't depend on the other moves or on the
+ * order the threads run in. The search plays the same move with any number of threads.
+ * @author janne
+ */
+public class ParallelRootSearch implements MoveStrategy {
+
+    private static final int HASH_SIZE_PER_THREAD = 4;
+
+    private final int searchDepth;
+    private final boolean vsAI;
+    private final int threads;
+
+    /**
+     * Constructor
+     * @param searchDepth
+     * @param vsAI
+     * @param threads number of threads, 1 searches the moves one after another
+     */
+    public ParallelRootSearch(final int searchDepth, final boolean vsAI, final int threads) {
+        this.searchDepth = searchDepth;
+        this.vsAI = vsAI;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Returns the best move that the search got.
+     * @param board
+     * @return
+     */
+    @Override
+    public Move execute(final Board board) {
+        final BitBoard position = BitBoard.fromBoard(board);
+        final ForkJoinPool pool = this.threads > 1 ? new ForkJoinPool(this.threads) : null;
+        final ThreadLocal<MiniMax> searches = ThreadLocal.withInitial(() -> MiniMax.rootMoveSearch(!this.vsAI, HASH_SIZE_PER_THREAD));
+        final int[] moves = legalMoves(position);
+        int bestMove = PackedMove.NONE;
+        try {
+            for (int depth = 1; depth <= this.searchDepth && moves.length > 0; depth++) {
+                bestMove = searchRoot(position, moves, depth, pool, searches);
+                moveToFront(moves, bestMove);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        return PackedMove.toMove(bestMove, board);
+    }
+
+    /**
+     * Returns the legal moves of the position in the order of the move generator.
+     * @param position
+     * @return
+     */
+    private static int[] legalMoves(final BitBoard position) {
+        final int[] moves = new int[MoveGenerator.MAX_MOVES];
+        final int legal = MoveGenerator.generateLegalMoves(position, moves);
+        final int[] legalMoves = new int[legal];
+        System.arraycopy(moves, 0, legalMoves, 0, legal);
+        return legalMoves;
+    }
+
+    /**
+     * Searches the root moves to the given depth. Of equally good moves the earliest one is chosen.
+     * @param position
+     * @param moves legal moves, the best move of the previous iteration first
+     * @param depth
+     * @param pool threads for the moves after the first one or null to search them here
+     * @param searches search of each thread
+     * @return the best move
+     */
+    private int searchRoot(final BitBoard position, final int[] moves, final int depth, final ForkJoinPool pool, final ThreadLocal<MiniMax> searches) {
+        final int bound = searches.get().searchRootMove(position, moves[0], depth, -MiniMax.INFINITY, MiniMax.INFINITY);
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 1; i < moves.length; i++) {
+            final int move = moves[i];
+            final BitBoard copy = pool == null ? position : position.copy();
+            tasks.add(() -> searchAgainstBound(searches.get(), copy, move, depth, bound));
+        }
+        final int[] values = pool == null ? runSerially(tasks) : runInPool(pool, tasks);
+        int bestMove = moves[0];
+        int best = bound;
+        for (int i = 1; i < moves.length; i++) {
+            if (values[i - 1] > best) {
+                best = values[i - 1];
+                bestMove = moves[i];
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Searches a move with a null window next to the bound and again with a window from the
+     * bound onwards if it is better, so the returned score is exact for every move that beats the bound.
+     * @param search
+     * @param position
+     * @param move
+     * @param depth
+     * @param bound score of the first root move
+     * @return
+     */
+    private static int searchAgainstBound(final MiniMax search, final BitBoard position, final int move, final int depth, final int bound) {
+        if (bound == MiniMax.INFINITY) {
+            return bound;
+        }
+        final int value = search.searchRootMove(position, move, depth, bound, bound + 1);
+        return value > bound ? search.searchRootMove(position, move, depth, bound, MiniMax.INFINITY) : value;
+    }
+
+    /**
+     * Runs the tasks one after another.
+     * @param tasks
+     * @return results in the order of the tasks
+     */
+    private static int[] runSerially(final List<Callable<Integer>> tasks) {
+        final int[] values = new int[tasks.size()];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                values[i] = tasks.get(i).call();
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Runs the tasks in the pool and waits for all of them.
+     * @param pool
+     * @param tasks
+     * @return results in the order of the tasks
+     */
+    private static int[] runInPool(final ForkJoinPool pool, final List<Callable<Integer>> tasks) {
+        final List<Future<Integer>> results = pool.invokeAll(tasks);
+        final int[] values = new int[results.size()];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                values[i] = results.get(i).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Moves a move to the front and keeps the order of the others.
+     * @param moves
+     * @param move
+     */
+    private static void moveToFront(final int[] moves, final int move) {
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package fi.helsinki.chessai.player.ai;
+
+/**
+ * Settings of the selective search of MiniMax: null move pruning, late move reductions and aspiration windows.
+ * A null move lets the opponent move twice; if a shallower search still fails high the node is
+ * pruned. Quiet moves ordered late are first searched with a reduced depth and searched again
+ * with the full depth only if they beat alpha. An aspiration window searches an iteration with a
+ * narrow window around the score of the previous iteration.
+ * @author janne
+ */
+public final class SearchParameters {
+    /**
+     * The default settings.
+     */
+    public static final SearchParameters DEFAULT = new Builder().build();
+    /**
+     * Every move is searched to the full depth.
+     */
+    public static final SearchParameters FULL_WIDTH = new Builder().setNullMovePruning(false).setLateMoveReductions(false).build();
+
+    private final boolean nullMovePruning;
+    private final int nullMoveMinDepth;
+    private final int nullMoveReduction;
+    private final int nullMoveDeepReduction;
+    private final int nullMoveDeepDepth;
+    private final boolean lateMoveReductions;
+    private final int reductionMinDepth;
+    private final int fullDepthMoves;
+    private final int lateMoveReduction;
+    private final int deepReductionMoves;
+    private final int deepReductionDepth;
+    private final boolean aspirationWindows;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private SearchParameters(final Builder builder) {
+        this.nullMovePruning = builder.nullMovePruning;
+        this.nullMoveMinDepth = builder.nullMoveMinDepth;
+        this.nullMoveReduction = builder.nullMoveReduction;
+        this.nullMoveDeepReduction = builder.nullMoveDeepReduction;
+        this.nullMoveDeepDepth = builder.nullMoveDeepDepth;
+        this.lateMoveReductions = builder.lateMoveReductions;
+        this.reductionMinDepth = builder.reductionMinDepth;
+        this.fullDepthMoves = builder.fullDepthMoves;
+        this.lateMoveReduction = builder.lateMoveReduction;
+        this.deepReductionMoves = builder.deepReductionMoves;
+        this.deepReductionDepth = builder.deepReductionDepth;
+        this.aspirationWindows = builder.aspirationWindows;
+    }
+
+    /**
+     * Returns true if a null move may be tried at a node of the depth.
+     * @param depth remaining depth of the node
+     * @return
+     */
+    public boolean canTryNullMove(final int depth) {
+        return this.nullMovePruning && depth >= this.nullMoveMinDepth;
+    }
+
+    /**
+     * Depth reduction of the null move search, larger at deep nodes.
+     * @param depth remaining depth of the node
+     * @return
+     */
+    public int nullMoveReduction(final int depth) {
+        return depth >= this.nullMoveDeepDepth ? this.nullMoveDeepReduction : this.nullMoveReduction;
+    }
+
+    /**
+     * Depth reduction of a quiet move, 0 if the move is searched to the full depth.
+     * @param depth remaining depth of the node
+     * @param moveNumber how many legal moves of the node were searched before this one
+     * @return
+     */
+    public int lateMoveReduction(final int depth, final int moveNumber) {
+        if (!this.lateMoveReductions || depth < this.reductionMinDepth || moveNumber < this.fullDepthMoves) {
+            return 0;
+        }
+        final int reduction = moveNumber >= this.deepReductionMoves && depth >= this.deepReductionDepth ? this.lateMoveReduction + 1 : this.lateMoveReduction;
+        return Math.min(reduction, depth - 2);
+    }
+
+    /**
+     * Returns true if the iterations after the first one start with an aspiration window.
+     * @return
+     */
+    public boolean hasAspirationWindows() {
+        return this.aspirationWindows;
+    }
+
+    /**
+     * Builder of the settings. The defaults are R = 2 for null moves and R = 3 from depth 7 on,
+     * and a reduction of one ply from the fourth quiet move on, two plies from the tenth move at depth 6 or more.
+     */
+    public static class Builder {
+        private boolean nullMovePruning = true;
+        private int nullMoveMinDepth = 3;
+        private int nullMoveReduction = 2;
+        private int nullMoveDeepReduction = 3;
+        private int nullMoveDeepDepth = 7;
+        private boolean lateMoveReductions = true;
+        private int reductionMinDepth = 3;
+        private int fullDepthMoves = 3;
+        private int lateMoveReduction = 1;
+        private int deepReductionMoves = 10;
+        private int deepReductionDepth = 6;
+        private boolean aspirationWindows = true;
+
+        /**
+         * Turns the null move pruning on or off.
+         * @param nullMovePruning
+         * @return
+         */
+        public Builder setNullMovePruning(final boolean nullMovePruning) {
+            this.nullMovePruning = nullMovePruning;
+            return this;
+        }
+
+        /**
+         * Sets the smallest remaining depth where a null move is tried.
+         * @param nullMoveMinDepth
+         * @return
+         */
+        public Builder setNullMoveMinDepth(final int nullMoveMinDepth) {
+            this.nullMoveMinDepth = nullMoveMinDepth;
+            return this;
+        }
+
+        /**
+         * Sets the null move reductions.
+         * @param reduction reduction below the deep depth
+         * @param deepReduction reduction from the deep depth on
+         * @param deepDepth
+         * @return
+         */
+        public Builder setNullMoveReduction(final int reduction, final int deepReduction, final int deepDepth) {
+            this.nullMoveReduction = reduction;
+            this.nullMoveDeepReduction = deepReduction;
+            this.nullMoveDeepDepth = deepDepth;
+            return this;
+        }
+
+        /**
+         * Turns the late move reductions on or off.
+         * @param lateMoveReductions
+         * @return
+         */
+        public Builder setLateMoveReductions(final boolean lateMoveReductions) {
+            this.lateMoveReductions = lateMoveReductions;
+            return this;
+        }
+
+        /**
+         * Sets the smallest remaining depth where moves are reduced.
+         * @param reductionMinDepth
+         * @return
+         */
+        public Builder setReductionMinDepth(final int reductionMinDepth) {
+            this.reductionMinDepth = reductionMinDepth;
+            return this;
+        }
+
+        /**
+         * Sets how many moves of a node are always searched to the full depth.
+         * @param fullDepthMoves
+         * @return
+         */
+        public Builder setFullDepthMoves(final int fullDepthMoves) {
+            this.fullDepthMoves = fullDepthMoves;
+            return this;
+        }
+
+        /**
+         * Sets the late move reductions.
+         * @param reduction reduction of a late quiet move
+         * @param deepMoves the moves from this on are reduced one ply more at deep nodes
+         * @param deepDepth smallest remaining depth of a deep node
+         * @return
+         */
+        public Builder setLateMoveReduction(final int reduction, final int deepMoves, final int deepDepth) {
+            this.lateMoveReduction = reduction;
+            this.deepReductionMoves = deepMoves;
+            this.deepReductionDepth = deepDepth;
+            return this;
+        }
+
+        /**
+         * Turns the aspiration windows on or off. Without them every iteration is searched with a full window.
+         * @param aspirationWindows
+         * @return
+         */
+        public Builder setAspirationWindows(final boolean aspirationWindows) {
+            this.aspirationWindows = aspirationWindows;
+            return this;
+        }
+
+        public SearchParameters build() {
+            return new SearchParameters(this);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package fi.helsinki.chessai.player.ai;
+
+/**
+ * A node of the Young Brothers Wait search whose younger moves are searched in parallel.
+ * The threads share the window and the best score of the node through the split point, and
+ * a beta cutoff aborts the other moves of the node and every split point below it.
+ * @author janne
+ */
+final class SplitPoint {
+    private final SplitPoint parent;
+    private final int beta;
+    private volatile boolean aborted;
+    private int alpha;
+    private int value;
+    private int bestMove;
+    private int[] line;
+
+    /**
+     * Constructor
+     * @param parent split point above this one or null
+     * @param alpha
+     * @param beta
+     * @param value score of the eldest move for the side to move
+     * @param bestMove the eldest move
+     */
+    SplitPoint(final SplitPoint parent, final int alpha, final int beta, final int value, final int bestMove) {
+        this.parent = parent;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.value = value;
+        this.bestMove = bestMove;
+    }
+
+    /**
+     * Returns true if this split point or one above it has been aborted.
+     * @return
+     */
+    boolean isAborted() {
+        for (SplitPoint splitPoint = this; splitPoint != null; splitPoint = splitPoint.parent) {
+            if (splitPoint.aborted) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the score of a searched move to the node and aborts the node on a beta cutoff.
+     * @param moveValue score of the move for the side to move
+     * @param move
+     * @param moveLine principal variation starting with the move
+     */
+    synchronized void update(final int moveValue, final int move, final int[] moveLine) {
+        if (moveValue > this.value) {
+            this.value = moveValue;
+            this.bestMove = move;
+        }
+        if (moveValue > this.alpha) {
+            this.alpha = moveValue;
+            this.line = moveLine;
+        }
+        if (this.alpha >= this.beta) {
+            this.aborted = true;
+        }
+    }
+
+    synchronized int getAlpha() {
+        return this.alpha;
+    }
+
+    int getBeta() {
+        return this.beta;
+    }
+
+    synchronized int getValue() {
+        return this.value;
+    }
+
+    synchronized int getBestMove() {
+        return this.bestMove;
+    }
+
+    /**
+     * Principal variation of the move that raised alpha the most, or null if the younger moves didn't raise it.
+     * @return
+     */
+    synchronized int[] getLine() {
+        return this.line;
+    }
+}
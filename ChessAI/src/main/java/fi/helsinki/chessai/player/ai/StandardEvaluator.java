@@ -1,11 +1,13 @@
 package fi.helsinki.chessai.player.ai;
 
-import fi.helsinki.chessai.board.Board;
-import fi.helsinki.chessai.board.pieces.Piece;
-import fi.helsinki.chessai.player.Player;
+import fi.helsinki.chessai.board.BitBoard;
+import fi.helsinki.chessai.board.MoveGenerator;
 
 /**
- * Standard evaluator of board states.
+ * Standard evaluator of board states. Material and piece-square scores are kept up to date by the
+ * position as moves are made, so only mobility, check and castling are computed here.
+ * The evaluation is tapered: a middlegame and an endgame score are blended by the game phase,
+ * so castling and the king in cover count in the middlegame and an active king in the endgame.
  * @author janne
  */
 public final class StandardEvaluator implements BoardEvaluator {
@@ -14,81 +16,140 @@ public final class StandardEvaluator implements BoardEvaluator {
     private static final int CHECK_MATE_SCORE = 10000;
     private static final int DEPTH_SCORE = 100;
     private static final int CASTLE_SCORE = 60;
-    private final static int MOBILITY_MULTIPLIER = 2;
+    private final static int MIDDLEGAME_MOBILITY = 2;
+    private final static int ENDGAME_MOBILITY = 1;
     //private final int STALEMATE_SCORE = -100;
 
+    private final int[] moveBuffer;
+    private final boolean randomized;
+    private final boolean detectsMate;
+
     public StandardEvaluator() {
+        this(true);
+    }
+
+    /**
+     * Constructor
+     * @param randomized false to leave out the small random term so equal positions always get equal scores
+     */
+    public StandardEvaluator(final boolean randomized) {
+        this(randomized, true);
+    }
+
+    /**
+     * Constructor
+     * @param randomized false to leave out the small random term so equal positions always get equal scores
+     * @param detectsMate false to leave checkmate to the search, which sees when a node has no legal moves
+     */
+    public StandardEvaluator(final boolean randomized, final boolean detectsMate) {
+        this.moveBuffer = new int[MoveGenerator.MAX_MOVES];
+        this.randomized = randomized;
+        this.detectsMate = detectsMate;
     }
 
     /**
      * Returns the evaluation of players score.
-     * @param board
+     * @param position
      * @param depth
      * @return 
      */
     @Override
-    public int evaluate(Board board, int depth) {
-        return scorePlayer(board, board.getWhitePlayer(), depth) - scorePlayer(board, board.getBlackPlayer(), depth);
+    public int evaluate(BitBoard position, int depth) {
+        final int whiteMoves = MoveGenerator.generateMoves(position, BitBoard.WHITE, this.moveBuffer);
+        final int blackMoves = MoveGenerator.generateMoves(position, BitBoard.BLACK, this.moveBuffer);
+        final int middlegame = middlegame(position, BitBoard.WHITE, whiteMoves, blackMoves) - middlegame(position, BitBoard.BLACK, blackMoves, whiteMoves);
+        final int endgame = endgame(position, BitBoard.WHITE, whiteMoves, blackMoves) - endgame(position, BitBoard.BLACK, blackMoves, whiteMoves);
+        return taper(middlegame, endgame, position.getPhase()) + scorePlayer(position, BitBoard.WHITE, depth) - scorePlayer(position, BitBoard.BLACK, depth);
     }
 
     /**
-     * Returns the current total score of the player.
-     * @param board
-     * @param player
-     * @param depth
+     * Blends the middlegame and the endgame score by the game phase.
+     * @param middlegame
+     * @param endgame
+     * @param phase BitBoard.MAX_PHASE in the opening, 0 in a pawn endgame
      * @return 
      */
-    private int scorePlayer(Board board, Player player, int depth) {
-        return pieceValue(player) + mobility(player) + check(player) + checkMate(player, depth) + castled(player) /*+ staleMate(player) +*/ + (int) (Math.random() * 10);
+    static int taper(final int middlegame, final int endgame, final int phase) {
+        return (middlegame * phase + endgame * (BitBoard.MAX_PHASE - phase)) / BitBoard.MAX_PHASE;
     }
 
     /**
-     * Returns the score of a single piece.
-     * @param player
+     * Returns the middlegame score of the player.
+     * @param position
+     * @param side
+     * @param moves number of moves the side has
+     * @param opponentMoves number of moves the opponent has
      * @return 
      */
-    private static int pieceValue(Player player) {
-        int score = 0;
-        for(Piece piece : player.getActivePieces()) {
-            score += piece.getPieceValue();
-        }
-        return score;
+    private static int middlegame(BitBoard position, int side, int moves, int opponentMoves) {
+        return position.getMaterial(side) + position.getMiddlegameScore(side) + MIDDLEGAME_MOBILITY * mobilityRatio(moves, opponentMoves) + castled(position, side);
     }
 
     /**
-     * The score for having more possible moves.
-     * @param player
+     * Returns the endgame score of the player.
+     * @param position
+     * @param side
+     * @param moves number of moves the side has
+     * @param opponentMoves number of moves the opponent has
      * @return 
      */
-    private static int mobility(final Player player) {
-        return MOBILITY_MULTIPLIER * mobilityRatio(player);
+    private static int endgame(BitBoard position, int side, int moves, int opponentMoves) {
+        return position.getMaterial(side) + position.getEndgameScore(side) + ENDGAME_MOBILITY * mobilityRatio(moves, opponentMoves);
     }
-    
+
+    /**
+     * Returns the score of the player that does not depend on the game phase.
+     * @param position
+     * @param side
+     * @param depth
+     * @return 
+     */
+    private int scorePlayer(BitBoard position, int side, int depth) {
+        return check(position, side) + checkMate(position, side, depth) /*+ staleMate(player) +*/ + random();
+    }
+
+    /**
+     * Small random score so the AI doesn't always play the same game.
+     * @return 
+     */
+    private int random() {
+        return this.randomized ? (int) (Math.random() * 10) : 0;
+    }
+
     /**
      * Returns the ratio of your number of moves versus opponents number of moves.
-     * @param player
+     * An opponent without moves counts as having one, so the ratio stays finite.
+     * @param moves
+     * @param opponentMoves
      * @return 
      */
-    private static int mobilityRatio(final Player player) {
-        return (int)((player.getLegalMoves().size() * 100.0f) / player.getOpponent().getLegalMoves().size());
-}
+    private static int mobilityRatio(final int moves, final int opponentMoves) {
+        return (int)((moves * 100.0f) / Math.max(1, opponentMoves));
+    }
 
     /**
      * Returns bonus score if the opponent is in check.
-     * @param player
+     * @param position
+     * @param side
      * @return 
      */
-    private static int check(Player player) {
-        return player.getOpponent().isInCheck() ? CHECK_SCORE : 0;
+    private static int check(BitBoard position, int side) {
+        return position.isInCheck(side ^ 1) ? CHECK_SCORE : 0;
     }
     /**
      * Returns bonus score if the opponent is in checkmate.
-     * @param player
+     * Only the side to move can be in checkmate.
+     * @param position
+     * @param side
      * @param depth Bonus score is added the sooner this can be achieved.
      * @return 
      */
-    private static int checkMate(Player player, int depth) {
-        return player.getOpponent().isInCheckMate() ? CHECK_MATE_SCORE * depthScore(depth) : 0;
+    private int checkMate(BitBoard position, int side, int depth) {
+        if (!this.detectsMate) {
+            return 0;
+        }
+        final int opponent = side ^ 1;
+        return opponent == position.getSideToMove() && position.isInCheck(opponent) && !MoveGenerator.hasLegalMoves(position, this.moveBuffer) ? CHECK_MATE_SCORE * depthScore(depth) : 0;
     }
 
     /**
@@ -102,11 +163,12 @@ public final class StandardEvaluator implements BoardEvaluator {
     
     /**
      * Returns bonus score if the king is castled.
-     * @param player
+     * @param position
+     * @param side
      * @return 
      */
-    private static int castled(Player player) {
-        return player.isCastled() ? CASTLE_SCORE : 0;
+    private static int castled(BitBoard position, int side) {
+        return position.hasCastled(side) ? CASTLE_SCORE : 0;
     }
 
     /**
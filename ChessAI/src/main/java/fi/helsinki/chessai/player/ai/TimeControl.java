@@ -0,0 +1,68 @@
+package fi.helsinki.chessai.player.ai;
+
+/**
+ * Time budget of a single move for the iterative deepening search.
+ * The budget is either a fixed time per move or a share of the remaining time on the clock plus the increment.
+ * @author janne
+ */
+public final class TimeControl {
+    /**
+     * No time limit, the search goes to its maximum depth.
+     */
+    public static final TimeControl NONE = new TimeControl(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private static final int MOVES_TO_GO = 30;
+    private static final long SAFETY_MARGIN = 50;
+
+    private final long softLimit;
+    private final long hardLimit;
+
+    /**
+     * Constructor
+     * @param softLimit no new iteration is started after this many milliseconds
+     * @param hardLimit the search is stopped after this many milliseconds
+     */
+    private TimeControl(final long softLimit, final long hardLimit) {
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+    }
+
+    /**
+     * Uses the same time for every move.
+     * @param moveTime milliseconds per move
+     * @return
+     */
+    public static TimeControl fixedMoveTime(final long moveTime) {
+        return new TimeControl(moveTime / 2, moveTime);
+    }
+
+    /**
+     * Spends a share of the remaining time and most of the increment on the move.
+     * @param remainingTime milliseconds left on the clock
+     * @param increment milliseconds added after the move
+     * @return
+     */
+    public static TimeControl remainingTime(final long remainingTime, final long increment) {
+        final long available = Math.max(1, remainingTime - SAFETY_MARGIN);
+        final long target = Math.min(available, remainingTime / MOVES_TO_GO + increment * 3 / 4);
+        return new TimeControl(target / 2, Math.min(available, target * 3));
+    }
+
+    /**
+     * Returns true if the search still has time to start a new iteration.
+     * @param elapsed milliseconds since the search started
+     * @return
+     */
+    public boolean canStartIteration(final long elapsed) {
+        return elapsed < this.softLimit;
+    }
+
+    /**
+     * Returns true if the search has to stop right away.
+     * @param elapsed milliseconds since the search started
+     * @return
+     */
+    public boolean isTimeUp(final long elapsed) {
+        return elapsed >= this.hardLimit;
+    }
+}
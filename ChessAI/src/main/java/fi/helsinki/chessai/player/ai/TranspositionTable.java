@@ -0,0 +1,160 @@
+package fi.helsinki.chessai.player.ai;
+
+import fi.helsinki.chessai.board.PackedMove;
+import java.util.Arrays;
+
+/**
+ * Fixed size transposition table of searched positions keyed by their Zobrist keys.
+ * Every bucket has two slots: the first one keeps the entry searched to the greatest depth
+ * and the second one always takes the newest entry. A slot is a key and a data word in a
+ * long array, so the table holds no objects.
+ * The data word packs the score (bits 0-31), the starting and destination tiles of the best move
+ * (bits 32-43), the search depth (bits 48-55) and the bound type (bits 56-57).
+ * The table is shared by the search threads without locks. The key word is stored XORed with the
+ * data word, so a slot that two threads wrote at the same time does not match its key and is ignored.
+ * @author janne
+ */
+public final class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    public static final long NO_ENTRY = 0;
+
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * 8;
+    private static final int MOVE_SHIFT = 32;
+    private static final int DEPTH_SHIFT = 48;
+    private static final int BOUND_SHIFT = 56;
+    private static final long MOVE_MASK = 0xFFF;
+    private static final long DEPTH_MASK = 0xFF;
+    private static final long BOUND_MASK = 0x3;
+
+    private final long[] entries;
+    private final int bucketMask;
+
+    /**
+     * Constructor
+     * @param sizeInMegabytes the table uses the largest power of two number of buckets that fits the size
+     */
+    public TranspositionTable(final int sizeInMegabytes) {
+        final long buckets = Math.max(1, (long) sizeInMegabytes * 1024 * 1024 / BYTES_PER_BUCKET);
+        final int size = Long.numberOfTrailingZeros(Long.highestOneBit(Math.min(buckets, 1 << 26)));
+        this.entries = new long[(1 << size) * LONGS_PER_BUCKET];
+        this.bucketMask = (1 << size) - 1;
+    }
+
+    /**
+     * Returns the data of a position or NO_ENTRY if it is not in the table.
+     * @param key
+     * @return
+     */
+    public long probe(final long key) {
+        final int index = bucketIndex(key);
+        long data = this.entries[index + 1];
+        if (data != NO_ENTRY && (this.entries[index] ^ data) == key) {
+            return data;
+        }
+        data = this.entries[index + 3];
+        if (data != NO_ENTRY && (this.entries[index + 2] ^ data) == key) {
+            return data;
+        }
+        return NO_ENTRY;
+    }
+
+    /**
+     * Stores a searched position. The entry replaces the depth-preferred slot if it was
+     * searched at least as deep, and the always-replace slot otherwise.
+     * @param key
+     * @param move best move found or PackedMove.NONE
+     * @param depth remaining search depth of the position
+     * @param score
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public void store(final long key, final int move, final int depth, final int score, final int bound) {
+        final int index = bucketIndex(key);
+        final long data = (score & 0xFFFFFFFFL)
+                | (long) (move & (int) MOVE_MASK) << MOVE_SHIFT
+                | (long) depth << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT;
+        final long deepest = this.entries[index + 1];
+        if (deepest == NO_ENTRY || (this.entries[index] ^ deepest) == key || depth >= getDepth(deepest)) {
+            this.entries[index] = key ^ data;
+            this.entries[index + 1] = data;
+        } else {
+            this.entries[index + 2] = key ^ data;
+            this.entries[index + 3] = data;
+        }
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        Arrays.fill(this.entries, 0);
+    }
+
+    /**
+     * Returns the number of buckets.
+     * @return
+     */
+    public int getBucketCount() {
+        return this.bucketMask + 1;
+    }
+
+    /**
+     * Returns the first long of the bucket of a key.
+     * @param key
+     * @return
+     */
+    private int bucketIndex(final long key) {
+        return ((int) (key ^ (key >>> 32)) & this.bucketMask) * LONGS_PER_BUCKET;
+    }
+
+    /**
+     * Score of an entry.
+     * @param data
+     * @return
+     */
+    public static int getScore(final long data) {
+        return (int) data;
+    }
+
+    /**
+     * Starting and destination tiles of the best move of an entry, see sameMove.
+     * @param data
+     * @return
+     */
+    public static int getMove(final long data) {
+        return (int) ((data >>> MOVE_SHIFT) & MOVE_MASK);
+    }
+
+    /**
+     * Search depth of an entry.
+     * @param data
+     * @return
+     */
+    public static int getDepth(final long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & DEPTH_MASK);
+    }
+
+    /**
+     * Bound type of an entry.
+     * @param data
+     * @return
+     */
+    public static int getBound(final long data) {
+        return (int) ((data >>> BOUND_SHIFT) & BOUND_MASK);
+    }
+
+    /**
+     * Returns true if a packed move has the tiles of a stored move.
+     * Promotions are always to a queen, so the tiles identify the move.
+     * @param move
+     * @param storedMove
+     * @return
+     */
+    public static boolean sameMove(final int move, final int storedMove) {
+        return storedMove != PackedMove.NONE && (move & (int) MOVE_MASK) == storedMove;
+    }
+}
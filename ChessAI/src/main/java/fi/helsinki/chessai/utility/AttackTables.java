@@ -0,0 +1,97 @@
+package fi.helsinki.chessai.utility;
+
+/**
+ * Precomputed attack sets of the knight, the king and the pawns for every tile.
+ * Bit n of a set is on when the piece attacks tile n. The tables are built once when the class is loaded.
+ * @author janne
+ */
+public final class AttackTables {
+    public static final long[] KNIGHT_ATTACKS = initializeStepAttacks(new int[][]{{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}});
+    public static final long[] KING_ATTACKS = initializeStepAttacks(new int[][]{{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}});
+    /**
+     * Pawn captures indexed by side (0 white, 1 black) and tile.
+     */
+    public static final long[][] PAWN_ATTACKS = {
+        initializeStepAttacks(new int[][]{{-1, -1}, {-1, 1}}),
+        initializeStepAttacks(new int[][]{{1, -1}, {1, 1}})
+    };
+    /**
+     * Tiles strictly between two tiles on the same row, column or diagonal, empty for other pairs.
+     */
+    public static final long[][] BETWEEN = new long[64][64];
+    /**
+     * Whole row, column or diagonal through two tiles, empty if the tiles are not on one.
+     */
+    public static final long[][] LINE = new long[64][64];
+
+    static {
+        initializeLines();
+    }
+
+    private AttackTables() {
+        throw new RuntimeException("Utility class only");
+    }
+
+    /**
+     * Builds the attack sets of a piece that moves one step of the given row and column changes.
+     * @param steps pairs of row and column changes
+     * @return attack set for every tile
+     */
+    private static long[] initializeStepAttacks(final int[][] steps) {
+        final long[] attacks = new long[64];
+        for (int square = 0; square < 64; square++) {
+            final int row = square / 8;
+            final int column = square % 8;
+            for (final int[] step : steps) {
+                final int targetRow = row + step[0];
+                final int targetColumn = column + step[1];
+                if (targetRow >= 0 && targetRow < 8 && targetColumn >= 0 && targetColumn < 8) {
+                    attacks[square] |= 1L << (targetRow * 8 + targetColumn);
+                }
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Fills the BETWEEN and LINE tables by walking from every tile in the eight directions.
+     */
+    private static void initializeLines() {
+        final int[][] directions = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+        for (int square = 0; square < 64; square++) {
+            for (final int[] direction : directions) {
+                final long line = ray(square, direction[0], direction[1]) | ray(square, -direction[0], -direction[1]) | 1L << square;
+                long between = 0;
+                int row = square / 8 + direction[0];
+                int column = square % 8 + direction[1];
+                while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+                    final int target = row * 8 + column;
+                    BETWEEN[square][target] = between;
+                    LINE[square][target] = line;
+                    between |= 1L << target;
+                    row += direction[0];
+                    column += direction[1];
+                }
+            }
+        }
+    }
+
+    /**
+     * Tiles from a tile to the edge of the board in one direction, the tile itself excluded.
+     * @param square
+     * @param rowStep
+     * @param columnStep
+     * @return
+     */
+    private static long ray(final int square, final int rowStep, final int columnStep) {
+        long ray = 0;
+        int row = square / 8 + rowStep;
+        int column = square % 8 + columnStep;
+        while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+            ray |= 1L << (row * 8 + column);
+            row += rowStep;
+            column += columnStep;
+        }
+        return ray;
+    }
+}
@@ -0,0 +1,166 @@
+package fi.helsinki.chessai.utility;
+
+import java.util.Random;
+
+/**
+ * Attack sets of the sliding pieces looked up with magic bitboards.
+ * The blockers on the rays of a tile are multiplied by a magic number and the top bits of the product
+ * index a table of precomputed attack sets, so a lookup takes constant time.
+ * The magic numbers are searched and the tables filled once when the class is loaded.
+ * @author janne
+ */
+public final class MagicBitboards {
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final long SEED = 20180401L;
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_TABLES = new long[64][];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_TABLES = new long[64][];
+
+    static {
+        final Random random = new Random(SEED);
+        for (int square = 0; square < 64; square++) {
+            initializeSquare(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLES, random);
+            initializeSquare(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_TABLES, random);
+        }
+    }
+
+    private MagicBitboards() {
+        throw new RuntimeException("Utility class only");
+    }
+
+    /**
+     * Tiles a rook on the tile attacks. The first blocker on every ray is included.
+     * @param square
+     * @param occupied all the pieces on the board
+     * @return
+     */
+    public static long rookAttacks(final int square, final long occupied) {
+        return ROOK_TABLES[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * Tiles a bishop on the tile attacks. The first blocker on every ray is included.
+     * @param square
+     * @param occupied all the pieces on the board
+     * @return
+     */
+    public static long bishopAttacks(final int square, final long occupied) {
+        return BISHOP_TABLES[square][(int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * Tiles a queen on the tile attacks.
+     * @param square
+     * @param occupied all the pieces on the board
+     * @return
+     */
+    public static long queenAttacks(final int square, final long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Walks the rays from a tile one step at a time until a blocker or the edge of the board.
+     * Used to fill the tables.
+     * @param square
+     * @param occupied
+     * @param directions pairs of row and column changes
+     * @return
+     */
+    private static long rayAttacks(final int square, final long occupied, final int[][] directions) {
+        long attacks = 0;
+        for (final int[] direction : directions) {
+            int row = square / 8 + direction[0];
+            int column = square % 8 + direction[1];
+            while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+                final long tile = 1L << (row * 8 + column);
+                attacks |= tile;
+                if ((occupied & tile) != 0) {
+                    break;
+                }
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * The tiles whose pieces can block the rays. The last tile of a ray never blocks anything.
+     * @param square
+     * @param directions
+     * @return
+     */
+    private static long blockerMask(final int square, final int[][] directions) {
+        long mask = 0;
+        for (final int[] direction : directions) {
+            int row = square / 8 + direction[0];
+            int column = square % 8 + direction[1];
+            while (row + direction[0] >= 0 && row + direction[0] < 8 && column + direction[1] >= 0 && column + direction[1] < 8) {
+                mask |= 1L << (row * 8 + column);
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Searches a magic number for the tile that maps every blocker subset to a slot without
+     * destructive collisions and fills the attack table.
+     * @param square
+     * @param directions
+     * @param masks
+     * @param magics
+     * @param shifts
+     * @param tables
+     * @param random
+     */
+    private static void initializeSquare(final int square, final int[][] directions, final long[] masks, final long[] magics,
+            final int[] shifts, final long[][] tables, final Random random) {
+        final long mask = blockerMask(square, directions);
+        final int bits = Long.bitCount(mask);
+        final int size = 1 << bits;
+        final long[] subsets = new long[size];
+        final long[] attacks = new long[size];
+        long subset = 0;
+        for (int i = 0; i < size; i++) {
+            subsets[i] = subset;
+            attacks[i] = rayAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+        final long[] table = new long[size];
+        final int[] used = new int[size];
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            final long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+            boolean failed = false;
+            for (int i = 0; i < size && !failed; i++) {
+                final int index = (int) ((subsets[i] * magic) >>> (64 - bits));
+                if (used[index] != attempt) {
+                    used[index] = attempt;
+                    table[index] = attacks[i];
+                } else if (table[index] != attacks[i]) {
+                    failed = true;
+                }
+            }
+            if (!failed) {
+                masks[square] = mask;
+                magics[square] = magic;
+                shifts[square] = 64 - bits;
+                tables[square] = table;
+                return;
+            }
+        }
+    }
+}
@@ -6,7 +6,6 @@ package fi.helsinki.chessai.utility;
  * and open the template in the editor.
  */
 import fi.helsinki.chessai.board.Move;
-import fi.helsinki.chessai.player.Side;
 import fi.helsinki.chessai.board.Board;
 import fi.helsinki.chessai.board.Tile;
 import fi.helsinki.chessai.board.pieces.Piece;
@@ -20,54 +19,47 @@ public class PieceUtility {
     
     /**
      * Gets the legal moves for all pieces that move according to a vector.
+     * The attacked tiles are looked up from the magic bitboards.
      * @param board current playing board
      * @param piece the piece that move list is generated for
-     * @param vectors the vectors the piece can move
+     * @param attacks the tiles the piece attacks on the current board
      * @return list of all the possible moves
      */
-    public static MyList<Move> getLegalVectorMoves(Board board, Piece piece, int[] vectors) {
-        final MyList<Move> legalMoves = new MyList<>();
-        for(final int offset : vectors) {
-            int pieceDestination = piece.getPosition() + offset;
-            while(BoardUtility.isValidTile(pieceDestination) && !BoardUtility.isOutOfBounds(pieceDestination - offset, pieceDestination, 1)) {
-                    final Tile destinationTile = board.getTile(pieceDestination);
-                    if(!destinationTile.occupied()) {
-                        legalMoves.add(new Move.RegularMove(board, piece, pieceDestination));
-                    } else {
-                        final Piece pieceAtDestination = destinationTile.getPiece();
-                        final Side pieceSide = pieceAtDestination.getPieceSide();
-                        if(piece.getPieceSide() != pieceSide) {
-                            legalMoves.add(new Move.AttackMove(board, piece, pieceDestination, pieceAtDestination));
-                        }
-                        break;
-                    }
-                pieceDestination += offset;
-            }
-        }
-        return legalMoves;
+    public static MyList<Move> getLegalVectorMoves(Board board, Piece piece, long attacks) {
+        return getLegalMovesTo(board, piece, attacks);
     }
     
     /**
      * Legal moves for a piece that doesn't move in a vector.
+     * The destinations are looked up from a precomputed attack table.
      * @param board
      * @param piece
-     * @param moves
-     * @param maxDistance Maximum distance of columns the piece can move
+     * @param attackTable attack sets of the piece for every tile
      * @return returns legal moves
      */
-    public static MyList<Move> getLegalSingleMoves(Board board, Piece piece, int[] moves, int maxDistance) {
+    public static MyList<Move> getLegalSingleMoves(Board board, Piece piece, long[] attackTable) {
+        return getLegalMovesTo(board, piece, attackTable[piece.getPosition()]);
+    }
+    
+    /**
+     * Moves to the given tiles that are empty or hold an opponent piece.
+     * @param board
+     * @param piece
+     * @param destinations
+     * @return 
+     */
+    private static MyList<Move> getLegalMovesTo(Board board, Piece piece, long destinations) {
         final MyList<Move> legalMoves = new MyList<>();
-        for(final int offset : moves) {
-            int pieceDestination = piece.getPosition() + offset;    
-            if(BoardUtility.isValidTile(pieceDestination) && !BoardUtility.isOutOfBounds(piece.getPosition(), pieceDestination, maxDistance)) {
-                final Tile destinationTile = board.getTile(pieceDestination);
-                if(!destinationTile.occupied()) {
-                    legalMoves.add(new Move.RegularMove(board, piece, pieceDestination));
-                } else {
-                    final Piece pieceAtDestination = destinationTile.getPiece();
-                    if(piece.getPieceSide() != pieceAtDestination.getPieceSide()) {
-                        legalMoves.add(new Move.AttackMove(board, piece, pieceDestination, pieceAtDestination));
-                    }
+        while(destinations != 0) {
+            final int pieceDestination = Long.numberOfTrailingZeros(destinations);
+            destinations &= destinations - 1;
+            final Tile destinationTile = board.getTile(pieceDestination);
+            if(!destinationTile.occupied()) {
+                legalMoves.add(new Move.RegularMove(board, piece, pieceDestination));
+            } else {
+                final Piece pieceAtDestination = destinationTile.getPiece();
+                if(piece.getPieceSide() != pieceAtDestination.getPieceSide()) {
+                    legalMoves.add(new Move.AttackMove(board, piece, pieceDestination, pieceAtDestination));
                 }
             }
         }
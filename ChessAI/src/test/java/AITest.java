@@ -1,10 +1,24 @@
 
+import fi.helsinki.chessai.board.BitBoard;
 import fi.helsinki.chessai.board.Board;
 import fi.helsinki.chessai.board.Move;
+import fi.helsinki.chessai.board.MoveGenerator;
 import fi.helsinki.chessai.board.MoveTransition;
+import fi.helsinki.chessai.player.ai.CachedEvaluator;
 import fi.helsinki.chessai.player.ai.MiniMax;
 import fi.helsinki.chessai.player.ai.MoveStrategy;
+import fi.helsinki.chessai.player.ai.ParallelMode;
+import fi.helsinki.chessai.player.ai.ParallelRootSearch;
+import fi.helsinki.chessai.player.ai.SearchParameters;
+import fi.helsinki.chessai.player.ai.StandardEvaluator;
+import fi.helsinki.chessai.player.ai.TimeControl;
+import fi.helsinki.chessai.board.pieces.King;
+import fi.helsinki.chessai.board.pieces.Knight;
+import fi.helsinki.chessai.board.pieces.Pawn;
+import fi.helsinki.chessai.board.pieces.Queen;
+import fi.helsinki.chessai.player.Side;
 import fi.helsinki.chessai.utility.BoardUtility;
+import fi.helsinki.chessai.utility.MyList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
@@ -60,6 +74,180 @@ public class AITest {
         final Move aiMove = strategy.execute(t4.getTransitionBoard());
         final Move expectedMove = Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("D1"), BoardUtility.getCoordinateFromNotation("H5"));
         assertEquals(aiMove, expectedMove);
-    }    
+    }
+    
+    @Test
+    public void testSearchStopsWhenMoveTimeRunsOut() {
+        final MoveStrategy strategy = new MiniMax(20, true, TimeControl.fixedMoveTime(500));
+        final long start = System.currentTimeMillis();
+        final Move aiMove = strategy.execute(board);
+        assertTrue(System.currentTimeMillis() - start < 3000);
+        assertTrue(board.currentPlayer().makeMove(aiMove).getMoveStatus().isDone());
+    }
+    
+    @Test
+    public void testTimeControlBudgets() {
+        TimeControl fixed = TimeControl.fixedMoveTime(1000);
+        assertTrue(fixed.canStartIteration(400));
+        assertTrue(!fixed.canStartIteration(600));
+        assertTrue(!fixed.isTimeUp(999));
+        assertTrue(fixed.isTimeUp(1000));
+        TimeControl clock = TimeControl.remainingTime(60000, 1000);
+        assertTrue(clock.canStartIteration(1000));
+        assertTrue(clock.isTimeUp(60000));
+        assertTrue(!TimeControl.remainingTime(100, 0).canStartIteration(100));
+        assertTrue(!TimeControl.NONE.isTimeUp(Long.MAX_VALUE - 1));
+    }
+    
+    @Test
+    public void testSearchParameters() {
+        final SearchParameters parameters = new SearchParameters.Builder().setNullMoveReduction(2, 3, 7).setFullDepthMoves(3).setLateMoveReduction(1, 10, 6).build();
+        assertTrue(parameters.canTryNullMove(3) && !parameters.canTryNullMove(2));
+        assertTrue(parameters.nullMoveReduction(6) == 2 && parameters.nullMoveReduction(7) == 3);
+        assertTrue(parameters.lateMoveReduction(5, 2) == 0);
+        assertTrue(parameters.lateMoveReduction(5, 3) == 1);
+        assertTrue(parameters.lateMoveReduction(6, 10) == 2);
+        assertTrue(parameters.lateMoveReduction(3, 10) == 1);
+        assertTrue(SearchParameters.FULL_WIDTH.lateMoveReduction(8, 20) == 0 && !SearchParameters.FULL_WIDTH.canTryNullMove(8));
+        final MoveStrategy selective = new MiniMax.Builder(5, true).setSearchParameters(SearchParameters.DEFAULT).build();
+        assertTrue(board.currentPlayer().makeMove(selective.execute(board)).getMoveStatus().isDone());
+    }
+    
+    @Test
+    public void testAspirationWindowSearch() {
+        Board.Builder builder = new Board.Builder();
+        builder.setPiece(new King(BoardUtility.getCoordinateFromNotation("G1"), Side.WHITE, false, false));
+        builder.setPiece(new Knight(BoardUtility.getCoordinateFromNotation("D5"), Side.WHITE, false));
+        builder.setPiece(new King(BoardUtility.getCoordinateFromNotation("E8"), Side.BLACK, false, false));
+        builder.setPiece(new Queen(BoardUtility.getCoordinateFromNotation("A8"), Side.BLACK, false));
+        builder.setMoveMaker(Side.WHITE);
+        Board position = builder.build();
+        final MiniMax aspiration = new MiniMax.Builder(4, true).build();
+        final MiniMax fullWindow = new MiniMax.Builder(4, true).setSearchParameters(new SearchParameters.Builder().setAspirationWindows(false).build()).build();
+        final Move aspirationMove = aspiration.execute(position);
+        final Move fullWindowMove = fullWindow.execute(position);
+        // the knight fork of the king and the queen is seen from depth 2 on, so the score jumps out of the window
+        assertTrue(aspiration.getResearchCount() > 0);
+        assertTrue(fullWindow.getResearchCount() == 0);
+        assertEquals(fullWindowMove, aspirationMove);
+        assertTrue(aspirationMove.getDestination() == BoardUtility.getCoordinateFromNotation("C7"));
+    }
+    
+    @Test
+    public void testQuiescenceSeesDefendedPawn() {
+        Board.Builder builder = new Board.Builder();
+        builder.setPiece(new King(BoardUtility.getCoordinateFromNotation("G1"), Side.WHITE, false, false));
+        builder.setPiece(new Queen(BoardUtility.getCoordinateFromNotation("D1"), Side.WHITE, false));
+        builder.setPiece(new King(BoardUtility.getCoordinateFromNotation("G8"), Side.BLACK, false, false));
+        builder.setPiece(new Pawn(BoardUtility.getCoordinateFromNotation("D5"), Side.BLACK, false));
+        builder.setPiece(new Pawn(BoardUtility.getCoordinateFromNotation("E6"), Side.BLACK, false));
+        builder.setMoveMaker(Side.WHITE);
+        Board position = builder.build();
+        final Move aiMove = new MiniMax(1, true).execute(position);
+        assertTrue(aiMove.getDestination() != BoardUtility.getCoordinateFromNotation("D5"));
+    }
+    
+    @Test
+    public void testEvaluationCache() {
+        BitBoard position = BitBoard.fromBoard(board);
+        CachedEvaluator cache = new CachedEvaluator(new StandardEvaluator(false, false), 1);
+        assertTrue(cache.getSize() == 1 << 17);
+        int score = cache.evaluate(position, 0);
+        assertTrue(score == new StandardEvaluator(false, false).evaluate(position, 0));
+        assertTrue(cache.evaluate(position, 0) == score);
+        assertTrue(cache.getHits() == 1 && cache.getMisses() == 1);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        MoveGenerator.generateLegalMoves(position, moves);
+        position.makeMove(moves[0]);
+        cache.evaluate(position, 0);
+        assertTrue(cache.getHits() == 1 && cache.getMisses() == 2);
+        cache.clear();
+        assertTrue(cache.getHits() == 0 && cache.getMisses() == 0);
+        final MiniMax search = new MiniMax.Builder(4, true).setThreads(2).setEvaluationCacheSize(1).build();
+        search.execute(board);
+        assertTrue(search.getEvaluationCacheHits() > 0 && search.getEvaluationCacheMisses() > 0);
+    }
+
+    @Test
+    public void testEvaluationCacheTellsCastledKingsApart() {
+        Board.Builder castled = new Board.Builder();
+        castled.setPiece(new King(BoardUtility.getCoordinateFromNotation("G1"), Side.WHITE, false, true));
+        castled.setPiece(new King(BoardUtility.getCoordinateFromNotation("G8"), Side.BLACK, false, false));
+        castled.setMoveMaker(Side.WHITE);
+        Board.Builder moved = new Board.Builder();
+        moved.setPiece(new King(BoardUtility.getCoordinateFromNotation("G1"), Side.WHITE, false, false));
+        moved.setPiece(new King(BoardUtility.getCoordinateFromNotation("G8"), Side.BLACK, false, false));
+        moved.setMoveMaker(Side.WHITE);
+        BitBoard castledPosition = BitBoard.fromBoard(castled.build());
+        BitBoard movedPosition = BitBoard.fromBoard(moved.build());
+        assertTrue(castledPosition.getZobristKey() == movedPosition.getZobristKey());
+        CachedEvaluator cache = new CachedEvaluator(new StandardEvaluator(false, false), 1);
+        cache.evaluate(castledPosition, 0);
+        assertTrue(cache.evaluate(movedPosition, 0) == new StandardEvaluator(false, false).evaluate(movedPosition, 0));
+        assertTrue(cache.getHits() == 0 && cache.getMisses() == 2);
+    }
+
+    @Test
+    public void testSearchMatesInsteadOfStalemate() {
+        Board.Builder builder = new Board.Builder();
+        builder.setPiece(new King(BoardUtility.getCoordinateFromNotation("B6"), Side.WHITE, false, false));
+        builder.setPiece(new Queen(BoardUtility.getCoordinateFromNotation("D7"), Side.WHITE, false));
+        builder.setPiece(new King(BoardUtility.getCoordinateFromNotation("A8"), Side.BLACK, false, false));
+        builder.setMoveMaker(Side.WHITE);
+        Board position = builder.build();
+        final Move aiMove = new MiniMax(2, true).execute(position);
+        assertTrue(position.currentPlayer().makeMove(aiMove).getTransitionBoard().currentPlayer().isInCheckMate());
+    }
+
+    @Test
+    public void testLazySmpSearchFindsMate() {
+        MoveTransition t1 = board.currentPlayer().makeMove(Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("F2"), BoardUtility.getCoordinateFromNotation("F3")));
+        MoveTransition t2 = t1.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t1.getTransitionBoard(), BoardUtility.getCoordinateFromNotation("E7"), BoardUtility.getCoordinateFromNotation("E5")));
+        MoveTransition t3 = t2.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t2.getTransitionBoard(), BoardUtility.getCoordinateFromNotation("G2"), BoardUtility.getCoordinateFromNotation("G4")));
+        board = t3.getTransitionBoard();
+        final Move aiMove = new MiniMax.Builder(3, true).setThreads(4).build().execute(board);
+        final Move expectedMove = Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("D8"), BoardUtility.getCoordinateFromNotation("H4"));
+        assertEquals(aiMove, expectedMove);
+    }
+    
+    @Test
+    public void testPrincipalVariationStartsWithPlayedMove() {
+        final MiniMax miniMax = new MiniMax(4, true);
+        final Move aiMove = miniMax.execute(board);
+        final MyList<Move> variation = miniMax.getPrincipalVariation();
+        assertTrue(variation.size() == 4);
+        assertEquals(variation.get(0), aiMove);
+        Board current = board;
+        for (Move move : variation) {
+            MoveTransition transition = current.currentPlayer().makeMove(Move.MoveFactory.createMove(current, move.getCurrentPosition(), move.getDestination()));
+            assertTrue(transition.getMoveStatus().isDone());
+            current = transition.getTransitionBoard();
+        }
+    }
     
+    @Test
+    public void testYoungBrothersWaitSearchFindsMate() {
+        MoveTransition t1 = board.currentPlayer().makeMove(Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("E2"), BoardUtility.getCoordinateFromNotation("E3")));
+        MoveTransition t2 = t1.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t1.getTransitionBoard(), BoardUtility.getCoordinateFromNotation("F7"), BoardUtility.getCoordinateFromNotation("F5")));
+        MoveTransition t3 = t2.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t2.getTransitionBoard(), BoardUtility.getCoordinateFromNotation("A2"), BoardUtility.getCoordinateFromNotation("A3")));
+        MoveTransition t4 = t3.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t3.getTransitionBoard(), BoardUtility.getCoordinateFromNotation("G7"), BoardUtility.getCoordinateFromNotation("G5")));
+        board = t4.getTransitionBoard();
+        final Move aiMove = new MiniMax.Builder(4, true).setThreads(4).setParallelMode(ParallelMode.YOUNG_BROTHERS_WAIT).setHashSize(1).build().execute(board);
+        final Move expectedMove = Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("D1"), BoardUtility.getCoordinateFromNotation("H5"));
+        assertEquals(aiMove, expectedMove);
+    }
+    
+    @Test
+    public void testParallelRootSearchMatchesSerialSearch() {
+        assertEquals(new ParallelRootSearch(3, true, 1).execute(board), new ParallelRootSearch(3, true, 4).execute(board));
+        MoveTransition t1 = board.currentPlayer().makeMove(Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("F2"), BoardUtility.getCoordinateFromNotation("F3")));
+        MoveTransition t2 = t1.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t1.getTransitionBoard(), BoardUtility.getCoordinateFromNotation("E7"), BoardUtility.getCoordinateFromNotation("E5")));
+        MoveTransition t3 = t2.getTransitionBoard().currentPlayer().makeMove(Move.MoveFactory.createMove(t2.getTransitionBoard(), BoardUtility.getCoordinateFromNotation("G2"), BoardUtility.getCoordinateFromNotation("G4")));
+        board = t3.getTransitionBoard();
+        final Move serialMove = new ParallelRootSearch(3, true, 1).execute(board);
+        final Move parallelMove = new ParallelRootSearch(3, true, 4).execute(board);
+        final Move expectedMove = Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("D8"), BoardUtility.getCoordinateFromNotation("H4"));
+        assertEquals(serialMove, parallelMove);
+        assertEquals(parallelMove, expectedMove);
+    }
 }
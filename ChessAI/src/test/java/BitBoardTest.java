@@ -0,0 +1,461 @@
+
+import fi.helsinki.chessai.board.BitBoard;
+import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.board.Move;
+import fi.helsinki.chessai.board.MoveGenerator;
+import fi.helsinki.chessai.board.MoveTransition;
+import fi.helsinki.chessai.board.PackedMove;
+import fi.helsinki.chessai.board.Zobrist;
+import fi.helsinki.chessai.board.pieces.Bishop;
+import fi.helsinki.chessai.board.pieces.King;
+import fi.helsinki.chessai.board.pieces.Knight;
+import fi.helsinki.chessai.board.pieces.Pawn;
+import fi.helsinki.chessai.board.pieces.Queen;
+import fi.helsinki.chessai.board.pieces.Rook;
+import fi.helsinki.chessai.player.Side;
+import fi.helsinki.chessai.utility.BoardUtility;
+import fi.helsinki.chessai.utility.MyList;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BitBoardTest {
+    Board board;
+
+    @Before
+    public void setUp() {
+        board = Board.createStandardBoard();
+    }
+
+    @Test
+    public void testStandardPosition() {
+        BitBoard position = BitBoard.fromBoard(board);
+        assertTrue(Long.bitCount(position.getOccupied()) == 32);
+        assertTrue(Long.bitCount(position.getPieces(BitBoard.WHITE, BitBoard.PAWN)) == 8);
+        assertTrue(position.getKingSquare(BitBoard.BLACK) == 4);
+        assertTrue(position.getKingSquare(BitBoard.WHITE) == 60);
+        assertTrue(position.pieceAt(59) == BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.QUEEN));
+        assertTrue(position.getCastlingRights() == 15);
+        assertTrue(position.getSideToMove() == BitBoard.WHITE);
+        assertTrue(position.getEnPassantSquare() == BitBoard.NO_SQUARE);
+        assertTrue(position.getPhase() == BitBoard.MAX_PHASE);
+    }
+
+    @Test
+    public void testConversionBothWays() {
+        BitBoard position = BitBoard.fromBoard(board);
+        assertEquals(board.toString(), position.toString());
+        Board converted = position.toBoard();
+        assertEquals(board.toString(), converted.toString());
+        assertTrue(converted.currentPlayer().getLegalMoves().size() == board.currentPlayer().getLegalMoves().size());
+    }
+
+    @Test
+    public void testEnPassantConversion() {
+        MoveTransition t1 = board.currentPlayer().makeMove(Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("E2"), BoardUtility.getCoordinateFromNotation("E4")));
+        BitBoard position = BitBoard.fromBoard(t1.getTransitionBoard());
+        assertTrue(position.getEnPassantSquare() == BoardUtility.getCoordinateFromNotation("E3"));
+        assertTrue(position.getSideToMove() == BitBoard.BLACK);
+        Board converted = position.toBoard();
+        assertTrue(converted.getEnPassantPawn().getPosition() == BoardUtility.getCoordinateFromNotation("E4"));
+    }
+
+    @Test
+    public void testCastlingRightsConversion() {
+        Board.Builder builder = new Board.Builder();
+        builder.setMoveMaker(Side.WHITE);
+        builder.setPiece(new King(60, Side.WHITE, true, false));
+        builder.setPiece(new Rook(63, Side.WHITE, true));
+        builder.setPiece(new Rook(56, Side.WHITE, false));
+        builder.setPiece(new King(4, Side.BLACK, false, true));
+        builder.setPiece(new Pawn(12, Side.BLACK, true));
+        BitBoard position = BitBoard.fromBoard(builder.build());
+        assertTrue(position.getCastlingRights() == BitBoard.WHITE_KING_SIDE);
+        assertTrue(position.hasCastled(BitBoard.BLACK));
+        Board converted = position.toBoard();
+        assertTrue(converted.getWhitePlayer().getCastleMoves().size() == 1);
+        assertTrue(converted.getBlackPlayer().isCastled());
+    }
+
+    @Test
+    public void testMakeAndUnmakeRestoresPosition() {
+        BitBoard position = BitBoard.fromBoard(board);
+        String before = position.toString();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(position, position.getSideToMove(), moves);
+        assertTrue(count == 20);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.makeMove(move);
+            assertTrue(position.getSideToMove() == BitBoard.BLACK);
+            position.unmakeMove(move);
+            assertEquals(before, position.toString());
+            assertTrue(position.getSideToMove() == BitBoard.WHITE);
+            assertTrue(position.getCastlingRights() == 15);
+            assertTrue(position.getEnPassantSquare() == BitBoard.NO_SQUARE);
+        }
+    }
+
+    @Test
+    public void testMoveCountsFromStandardPosition() {
+        BitBoard position = BitBoard.fromBoard(board);
+        assertTrue(perft(position, 1) == 20);
+        assertTrue(perft(position, 2) == 400);
+        assertTrue(perft(position, 3) == 8902);
+        assertTrue(perft(position, 4) == 197281);
+    }
+
+    @Test
+    public void testCastleAndEnPassantUnmake() {
+        Board.Builder builder = new Board.Builder();
+        builder.setMoveMaker(Side.WHITE);
+        builder.setPiece(new King(60, Side.WHITE, true, false));
+        builder.setPiece(new Rook(63, Side.WHITE, true));
+        builder.setPiece(new Pawn(BoardUtility.getCoordinateFromNotation("E5"), Side.WHITE, false));
+        Pawn jumped = new Pawn(BoardUtility.getCoordinateFromNotation("D5"), Side.BLACK, false);
+        builder.setPiece(jumped);
+        builder.setEnPassantPawn(jumped);
+        builder.setPiece(new King(4, Side.BLACK, true, false));
+        BitBoard position = BitBoard.fromBoard(builder.build());
+        String before = position.toString();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(position, BitBoard.WHITE, moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.makeMove(move);
+            if (PackedMove.getFlag(move) == PackedMove.EN_PASSANT) {
+                assertTrue(position.pieceAt(BoardUtility.getCoordinateFromNotation("D5")) == BitBoard.NO_PIECE);
+            }
+            if (PackedMove.getFlag(move) == PackedMove.CASTLE) {
+                assertTrue(position.pieceAt(61) == BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.ROOK));
+                assertTrue(position.hasCastled(BitBoard.WHITE));
+            }
+            position.unmakeMove(move);
+            assertEquals(before, position.toString());
+            assertTrue(position.getEnPassantSquare() == BoardUtility.getCoordinateFromNotation("D6"));
+            assertTrue(position.getCastlingRights() == BitBoard.WHITE_KING_SIDE);
+            assertTrue(!position.hasCastled(BitBoard.WHITE));
+        }
+    }
+
+    @Test
+    public void testNullMove() {
+        Board.Builder builder = new Board.Builder();
+        builder.setMoveMaker(Side.WHITE);
+        builder.setPiece(new King(60, Side.WHITE, true, false));
+        builder.setPiece(new Pawn(BoardUtility.getCoordinateFromNotation("E5"), Side.WHITE, false));
+        Pawn jumped = new Pawn(BoardUtility.getCoordinateFromNotation("D5"), Side.BLACK, false);
+        builder.setPiece(jumped);
+        builder.setEnPassantPawn(jumped);
+        builder.setPiece(new King(4, Side.BLACK, true, false));
+        builder.setPiece(new Rook(0, Side.BLACK, true));
+        BitBoard position = BitBoard.fromBoard(builder.build());
+        String before = position.toString();
+        long key = position.getZobristKey();
+        position.makeNullMove();
+        assertTrue(position.getSideToMove() == BitBoard.BLACK);
+        assertTrue(position.getEnPassantSquare() == BitBoard.NO_SQUARE);
+        assertTrue(position.getZobristKey() == Zobrist.computeKey(position));
+        position.unmakeNullMove();
+        assertEquals(before, position.toString());
+        assertTrue(position.getZobristKey() == key);
+        assertTrue(position.getEnPassantSquare() == BoardUtility.getCoordinateFromNotation("D6"));
+        assertTrue(!position.hasNonPawnMaterial(BitBoard.WHITE));
+        assertTrue(position.hasNonPawnMaterial(BitBoard.BLACK));
+    }
+
+    @Test
+    public void testZobristKeyOfBoardAndBitBoard() {
+        assertTrue(board.getZobristKey() == BitBoard.fromBoard(board).getZobristKey());
+        assertTrue(board.getZobristKey() == Zobrist.computeKey(board));
+        Board knightsBack = board;
+        for (String[] move : new String[][]{{"G1", "F3"}, {"G8", "F6"}, {"F3", "G1"}, {"F6", "G8"}}) {
+            knightsBack = playMove(knightsBack, move[0], move[1]);
+        }
+        assertTrue(knightsBack.getZobristKey() == board.getZobristKey());
+        Board pawnMoved = playMove(board, "E2", "E4");
+        assertTrue(pawnMoved.getZobristKey() != board.getZobristKey());
+        assertTrue(pawnMoved.getZobristKey() != playMove(board, "E2", "E3").getZobristKey());
+    }
+
+    @Test
+    public void testZobristKeyIsUpdatedOnEveryMove() {
+        Random random = new Random(7);
+        for (int game = 0; game < 5; game++) {
+            Board current = board;
+            for (int ply = 0; ply < 150; ply++) {
+                MyList<Move> moves = current.currentPlayer().getLegalMoves();
+                MoveTransition transition = null;
+                for (int tries = 0; tries < 50 && (transition == null || !transition.getMoveStatus().isDone()); tries++) {
+                    transition = current.currentPlayer().makeMove(moves.get(random.nextInt(moves.size())));
+                }
+                if (!transition.getMoveStatus().isDone()) {
+                    break;
+                }
+                current = transition.getTransitionBoard();
+                assertTrue(current.getZobristKey() == Zobrist.computeKey(current));
+                assertTrue(current.getZobristKey() == BitBoard.fromBoard(current).getZobristKey());
+            }
+        }
+    }
+
+    @Test
+    public void testZobristKeyMakeAndUnmake() {
+        Board.Builder builder = new Board.Builder();
+        builder.setMoveMaker(Side.WHITE);
+        builder.setPiece(new King(60, Side.WHITE, true, false));
+        builder.setPiece(new Rook(63, Side.WHITE, true));
+        builder.setPiece(new Rook(56, Side.WHITE, true));
+        builder.setPiece(new Pawn(BoardUtility.getCoordinateFromNotation("E5"), Side.WHITE, false));
+        builder.setPiece(new Pawn(BoardUtility.getCoordinateFromNotation("B7"), Side.WHITE, false));
+        Pawn jumped = new Pawn(BoardUtility.getCoordinateFromNotation("D5"), Side.BLACK, false);
+        builder.setPiece(jumped);
+        builder.setEnPassantPawn(jumped);
+        builder.setPiece(new King(4, Side.BLACK, true, false));
+        builder.setPiece(new Rook(0, Side.BLACK, true));
+        checkKeys(BitBoard.fromBoard(builder.build()), 3);
+        checkKeys(BitBoard.fromBoard(board), 3);
+    }
+
+    @Test
+    public void testCaptureGenerationMatchesAllMoves() {
+        checkCaptures(BitBoard.fromBoard(board), 4);
+    }
+
+    @Test
+    public void testLegalMovesMatchPseudoLegalMoves() {
+        checkLegalMoves(BitBoard.fromBoard(board), 3);
+    }
+
+    @Test
+    public void testEnPassantDiscoveredCheckIsIllegal() {
+        Board.Builder builder = new Board.Builder();
+        builder.setMoveMaker(Side.WHITE);
+        builder.setPiece(new King(BoardUtility.getCoordinateFromNotation("A5"), Side.WHITE, false, false));
+        builder.setPiece(new Pawn(BoardUtility.getCoordinateFromNotation("B5"), Side.WHITE, false));
+        Pawn jumped = new Pawn(BoardUtility.getCoordinateFromNotation("C5"), Side.BLACK, false);
+        builder.setPiece(jumped);
+        builder.setEnPassantPawn(jumped);
+        builder.setPiece(new Rook(BoardUtility.getCoordinateFromNotation("H5"), Side.BLACK, false));
+        builder.setPiece(new King(BoardUtility.getCoordinateFromNotation("E8"), Side.BLACK, false, false));
+        BitBoard position = BitBoard.fromBoard(builder.build());
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, moves);
+        for (int i = 0; i < count; i++) {
+            assertTrue(PackedMove.getFlag(moves[i]) != PackedMove.EN_PASSANT);
+        }
+        checkLegalMoves(position, 2);
+    }
+
+    @Test
+    public void testMaterialAndPieceSquareScoresAreUpdatedOnEveryMove() {
+        Random random = new Random(11);
+        BitBoard position = BitBoard.fromBoard(board);
+        assertTrue(position.getMaterial(BitBoard.WHITE) == position.getMaterial(BitBoard.BLACK));
+        assertTrue(position.getMiddlegameScore(BitBoard.WHITE) == position.getMiddlegameScore(BitBoard.BLACK));
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] played = new int[120];
+        int plies = 0;
+        while (plies < played.length) {
+            int count = MoveGenerator.generateLegalMoves(position, moves);
+            if (count == 0) {
+                break;
+            }
+            played[plies++] = moves[random.nextInt(count)];
+            position.makeMove(played[plies - 1]);
+            BitBoard fresh = BitBoard.fromBoard(position.toBoard());
+            for (int side = BitBoard.WHITE; side <= BitBoard.BLACK; side++) {
+                assertTrue(position.getMaterial(side) == fresh.getMaterial(side));
+                assertTrue(position.getMiddlegameScore(side) == fresh.getMiddlegameScore(side));
+                assertTrue(position.getEndgameScore(side) == fresh.getEndgameScore(side));
+            }
+            assertTrue(position.getPhase() == fresh.getPhase());
+        }
+        while (plies > 0) {
+            position.unmakeMove(played[--plies]);
+        }
+        BitBoard start = BitBoard.fromBoard(board);
+        for (int side = BitBoard.WHITE; side <= BitBoard.BLACK; side++) {
+            assertTrue(position.getMaterial(side) == start.getMaterial(side));
+            assertTrue(position.getEndgameScore(side) == start.getEndgameScore(side));
+        }
+        assertTrue(position.getPhase() == BitBoard.MAX_PHASE);
+    }
+
+    @Test
+    public void testPhaseOfPawnEndgame() {
+        Board.Builder builder = new Board.Builder();
+        builder.setPiece(new King(60, Side.WHITE, false, false));
+        builder.setPiece(new King(4, Side.BLACK, false, false));
+        builder.setPiece(new Pawn(52, Side.WHITE, true));
+        builder.setPiece(new Pawn(12, Side.BLACK, true));
+        builder.setMoveMaker(Side.WHITE);
+        BitBoard position = BitBoard.fromBoard(builder.build());
+        assertTrue(position.getPhase() == 0);
+    }
+
+    @Test
+    public void testPhaseIsCappedAfterPromotion() {
+        Board.Builder builder = new Board.Builder();
+        builder.setPiece(new King(60, Side.WHITE, false, false));
+        builder.setPiece(new Queen(59, Side.WHITE, false));
+        builder.setPiece(new Rook(56, Side.WHITE, false));
+        builder.setPiece(new Rook(63, Side.WHITE, false));
+        builder.setPiece(new Bishop(58, Side.WHITE, false));
+        builder.setPiece(new Bishop(61, Side.WHITE, false));
+        builder.setPiece(new Knight(57, Side.WHITE, false));
+        builder.setPiece(new Knight(62, Side.WHITE, false));
+        builder.setPiece(new Pawn(8, Side.WHITE, false));
+        builder.setPiece(new King(4, Side.BLACK, false, false));
+        builder.setPiece(new Queen(3, Side.BLACK, false));
+        builder.setPiece(new Rook(6, Side.BLACK, false));
+        builder.setPiece(new Rook(7, Side.BLACK, false));
+        builder.setPiece(new Bishop(2, Side.BLACK, false));
+        builder.setPiece(new Bishop(5, Side.BLACK, false));
+        builder.setPiece(new Knight(17, Side.BLACK, false));
+        builder.setPiece(new Knight(18, Side.BLACK, false));
+        builder.setMoveMaker(Side.WHITE);
+        BitBoard position = BitBoard.fromBoard(builder.build());
+        assertTrue(position.getPhase() == BitBoard.MAX_PHASE);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, moves);
+        int promotion = PackedMove.NONE;
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.getPromotionPiece(moves[i]) == BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.QUEEN)) {
+                promotion = moves[i];
+            }
+        }
+        assertTrue(promotion != PackedMove.NONE);
+        position.makeMove(promotion);
+        assertTrue(position.getPhase() == BitBoard.MAX_PHASE);
+        position.unmakeMove(promotion);
+        assertTrue(position.getPhase() == BitBoard.MAX_PHASE);
+    }
+
+    @Test
+    public void testRepetitionInGameAndSearch() {
+        String[][] shuffle = {{"G1", "F3"}, {"G8", "F6"}, {"F3", "G1"}, {"F6", "G8"}};
+        Board current = board;
+        for (int i = 0; i < 8; i++) {
+            assertTrue(!current.isDrawByRepetition());
+            current = playMove(current, shuffle[i % 4][0], shuffle[i % 4][1]);
+        }
+        assertTrue(current.isDrawByRepetition());
+        BitBoard position = BitBoard.fromBoard(board);
+        assertTrue(!position.isRepetition());
+        int[] moves = new int[4];
+        current = board;
+        for (int i = 0; i < 4; i++) {
+            Move move = Move.MoveFactory.createMove(current, BoardUtility.getCoordinateFromNotation(shuffle[i][0]), BoardUtility.getCoordinateFromNotation(shuffle[i][1]));
+            moves[i] = PackedMove.fromMove(move);
+            current = current.currentPlayer().makeMove(move).getTransitionBoard();
+            position.makeMove(moves[i]);
+        }
+        assertTrue(position.isRepetition());
+        assertTrue(BitBoard.fromBoard(current).isRepetition());
+        position.unmakeMove(moves[3]);
+        assertTrue(!position.isRepetition());
+    }
+
+    /**
+     * Checks in every node that the legal moves are the pseudo legal moves that don't leave the king in check.
+     */
+    private static void checkLegalMoves(BitBoard position, int depth) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(position, position.getSideToMove(), moves);
+        int legalCount = MoveGenerator.generateLegalMoves(position, legalMoves);
+        int expected = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            boolean legal = position.isLegalPosition();
+            if (legal && depth > 0) {
+                checkLegalMoves(position, depth - 1);
+            }
+            position.unmakeMove(moves[i]);
+            if (legal) {
+                assertTrue(legalMoves[expected++] == moves[i]);
+            }
+        }
+        assertTrue(legalCount == expected);
+    }
+
+    /**
+     * Checks in every node that the captures generator gives exactly the captures and promotions of all the moves.
+     */
+    private static void checkCaptures(BitBoard position, int depth) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] captures = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(position, position.getSideToMove(), moves);
+        int captureCount = MoveGenerator.generateCaptures(position, position.getSideToMove(), captures);
+        int expected = 0;
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.isCapture(moves[i]) || PackedMove.isPromotion(moves[i])) {
+                expected++;
+                boolean found = false;
+                for (int j = 0; j < captureCount; j++) {
+                    found |= captures[j] == moves[i];
+                }
+                assertTrue(found);
+            }
+        }
+        assertTrue(captureCount == expected);
+        if (depth == 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            if (position.isLegalPosition()) {
+                checkCaptures(position, depth - 1);
+            }
+            position.unmakeMove(moves[i]);
+        }
+    }
+
+    /**
+     * Checks that the incrementally updated key matches a computed key in every node.
+     */
+    private static void checkKeys(BitBoard position, int depth) {
+        assertTrue(position.getZobristKey() == Zobrist.computeKey(position));
+        if (depth == 0) {
+            return;
+        }
+        long key = position.getZobristKey();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(position, position.getSideToMove(), moves);
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            checkKeys(position, depth - 1);
+            position.unmakeMove(moves[i]);
+            assertTrue(position.getZobristKey() == key);
+        }
+    }
+
+    private static Board playMove(Board board, String from, String to) {
+        Move move = Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation(from), BoardUtility.getCoordinateFromNotation(to));
+        return board.currentPlayer().makeMove(move).getTransitionBoard();
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree.
+     */
+    private static long perft(BitBoard position, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(position, position.getSideToMove(), moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.makeMove(move);
+            if (position.isLegalPosition()) {
+                nodes += perft(position, depth - 1);
+            }
+            position.unmakeMove(move);
+        }
+        return nodes;
+    }
+}
@@ -5,6 +5,9 @@
  */
 
 import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.board.pieces.King;
+import fi.helsinki.chessai.board.pieces.Queen;
+import fi.helsinki.chessai.player.Side;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -27,4 +30,34 @@ public class BoardTest {
         assertTrue(board.getTile(2).toString().equals("b"));
         assertTrue(board.getTile(1).getPiece().getPieceSide().isBlack());
     }
+    
+    @Test
+    public void testSquareAttacks() {
+        assertTrue(board.isSquareAttacked(45, Side.WHITE));
+        assertFalse(board.isSquareAttacked(45, Side.BLACK));
+        assertFalse(board.isSquareAttacked(36, Side.WHITE));
+        assertTrue(board.attackersTo(45) == (1L << 52 | 1L << 54 | 1L << 62));
+        assertTrue(board.attackersTo(-666) == 0);
+        assertFalse(board.currentPlayer().isInCheck());
+    }
+    
+    @Test
+    public void testPlayerNotToMoveChecksItsOwnKing() {
+        Board.Builder builder = new Board.Builder();
+        builder.setPiece(new King(56, Side.WHITE, false, false));
+        builder.setPiece(new Queen(41, Side.BLACK, false));
+        builder.setPiece(new King(7, Side.BLACK, false, false));
+        builder.setMoveMaker(Side.BLACK);
+        Board position = builder.build();
+        assertTrue(position.getWhitePlayer().isInStaleMate());
+        assertFalse(position.getBlackPlayer().isInStaleMate());
+    }
+    
+    @Test
+    public void testLegalMovesAreCached() {
+        assertTrue(board.getAllLegalMoves().size() == 40);
+        assertTrue(board.getAllLegalMoves().size() == 40);
+        assertTrue(board.currentPlayer().getLegalMoves() == board.currentPlayer().getLegalMoves());
+        assertTrue(board.currentPlayer().getLegalMoves().size() == 20);
+    }
 }
@@ -0,0 +1,92 @@
+
+import fi.helsinki.chessai.board.BitBoard;
+import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.board.MoveGenerator;
+import fi.helsinki.chessai.player.ai.BoardEvaluator;
+import fi.helsinki.chessai.player.ai.CachedEvaluator;
+import fi.helsinki.chessai.player.ai.StandardEvaluator;
+import java.util.Random;
+
+/**
+ * Evaluations per second of the leaf evaluation that looks for checkmate itself, of the one that
+ * leaves checkmate to the search and of the latter behind an evaluation cache. The positions come
+ * from random games, so some of them are in check. Each position is evaluated many times, so after the
+ * first round the cache answers almost every evaluation.
+ * Not a unit test, run it with the test classpath: java EvaluationBenchmark [positions]
+ * @author janne
+ */
+public class EvaluationBenchmark {
+    private static final int RUNS = 5;
+    private static final int EVALUATIONS = 2000000;
+    private static final int MAX_GAME_LENGTH = 80;
+
+    public static void main(String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final BitBoard[] positions = randomPositions(count, new Random(42));
+        int inCheck = 0;
+        for (final BitBoard position : positions) {
+            if (position.isInCheck(position.getSideToMove())) {
+                inCheck++;
+            }
+        }
+        System.out.println(count + " positions, " + inCheck + " in check");
+        final BoardEvaluator detectsMate = new StandardEvaluator(false, true);
+        final BoardEvaluator searchDetectsMate = new StandardEvaluator(false, false);
+        final CachedEvaluator cached = new CachedEvaluator(new StandardEvaluator(false, false), 2);
+        // warm up the JIT before timing
+        evaluationsPerSecond(detectsMate, positions);
+        evaluationsPerSecond(searchDetectsMate, positions);
+        evaluationsPerSecond(cached, positions);
+        System.out.println(String.format("mate detected by the evaluator: %10.0f evaluations/s", evaluationsPerSecond(detectsMate, positions)));
+        System.out.println(String.format("mate detected by the search:    %10.0f evaluations/s", evaluationsPerSecond(searchDetectsMate, positions)));
+        System.out.println(String.format("evaluation cache:               %10.0f evaluations/s, %d hits, %d misses",
+                evaluationsPerSecond(cached, positions), cached.getHits(), cached.getMisses()));
+    }
+
+    /**
+     * Best rate of a few rounds of evaluations over the positions.
+     * @param evaluator
+     * @param positions
+     * @return
+     */
+    private static double evaluationsPerSecond(final BoardEvaluator evaluator, final BitBoard[] positions) {
+        double best = 0;
+        long checksum = 0;
+        for (int run = 0; run < RUNS; run++) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < EVALUATIONS; i++) {
+                checksum += evaluator.evaluate(positions[i % positions.length], 0);
+            }
+            best = Math.max(best, EVALUATIONS * 1e9 / (System.nanoTime() - start));
+        }
+        if (checksum == Long.MIN_VALUE) {
+            System.out.println(checksum);
+        }
+        return best;
+    }
+
+    /**
+     * Positions reached by playing random legal moves from the starting position.
+     * @param count
+     * @param random
+     * @return
+     */
+    private static BitBoard[] randomPositions(final int count, final Random random) {
+        final BitBoard[] positions = new BitBoard[count];
+        final int[] moves = new int[MoveGenerator.MAX_MOVES];
+        BitBoard position = BitBoard.fromBoard(Board.createStandardBoard());
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            final int moveCount = MoveGenerator.generateLegalMoves(position, moves);
+            if (moveCount == 0 || length == MAX_GAME_LENGTH) {
+                position = BitBoard.fromBoard(Board.createStandardBoard());
+                length = 0;
+            } else {
+                position.makeMove(moves[random.nextInt(moveCount)]);
+                length++;
+            }
+            positions[i] = position.copy();
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,47 @@
+
+import fi.helsinki.chessai.board.BitBoard;
+import fi.helsinki.chessai.board.PackedMove;
+import fi.helsinki.chessai.player.ai.MoveOrdering;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class MoveOrderingTest {
+    final int whitePawn = BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.PAWN);
+    final int whiteKnight = BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.KNIGHT);
+    final int whiteQueen = BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.QUEEN);
+    final int blackRook = BitBoard.pieceIndex(BitBoard.BLACK, BitBoard.ROOK);
+    final int blackKnight = BitBoard.pieceIndex(BitBoard.BLACK, BitBoard.KNIGHT);
+
+    @Test
+    public void testMovesArePickedInOrder() {
+        MoveOrdering ordering = new MoveOrdering(8);
+        int quiet = PackedMove.create(57, 42, whiteKnight, BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.QUIET);
+        int historyMove = PackedMove.create(62, 45, whiteKnight, BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.QUIET);
+        int killer = PackedMove.create(52, 44, whitePawn, BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.QUIET);
+        int queenTakesKnight = PackedMove.create(35, 18, whiteQueen, blackKnight, BitBoard.NO_PIECE, PackedMove.QUIET);
+        int pawnTakesKnight = PackedMove.create(27, 18, whitePawn, blackKnight, BitBoard.NO_PIECE, PackedMove.QUIET);
+        int pawnTakesRook = PackedMove.create(25, 16, whitePawn, blackRook, BitBoard.NO_PIECE, PackedMove.QUIET);
+        int hashMove = PackedMove.create(48, 40, whitePawn, BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.QUIET);
+        ordering.cutoff(historyMove, 5, 4);
+        ordering.cutoff(killer, 3, 2);
+        int[] moves = {quiet, historyMove, killer, queenTakesKnight, pawnTakesKnight, pawnTakesRook, hashMove};
+        int[] scores = new int[moves.length];
+        ordering.scoreMoves(moves, scores, moves.length, 3, hashMove & 0xFFF);
+        int[] expected = {hashMove, pawnTakesRook, pawnTakesKnight, queenTakesKnight, killer, historyMove, quiet};
+        for (int i = 0; i < moves.length; i++) {
+            assertTrue(MoveOrdering.pickNext(moves, scores, moves.length, i) == expected[i]);
+        }
+    }
+
+    @Test
+    public void testCapturesAreNotKillers() {
+        MoveOrdering ordering = new MoveOrdering(8);
+        int capture = PackedMove.create(27, 18, whitePawn, blackKnight, BitBoard.NO_PIECE, PackedMove.QUIET);
+        int quiet = PackedMove.create(57, 42, whiteKnight, BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.QUIET);
+        ordering.cutoff(capture, 0, 3);
+        int[] moves = {quiet};
+        int[] scores = new int[1];
+        ordering.scoreMoves(moves, scores, 1, 0, PackedMove.NONE);
+        assertTrue(scores[0] == 0);
+    }
+}
@@ -2,13 +2,16 @@
 import fi.helsinki.chessai.player.Side;
 import fi.helsinki.chessai.board.Board;
 import fi.helsinki.chessai.board.Move;
+import fi.helsinki.chessai.board.BitBoard;
 import fi.helsinki.chessai.board.MoveTransition;
+import fi.helsinki.chessai.board.PackedMove;
 import fi.helsinki.chessai.board.pieces.King;
 import fi.helsinki.chessai.board.pieces.Pawn;
 import fi.helsinki.chessai.board.pieces.Piece;
 import fi.helsinki.chessai.board.pieces.Piece.PieceType;
 import fi.helsinki.chessai.board.pieces.Rook;
 import fi.helsinki.chessai.utility.BoardUtility;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
@@ -82,4 +85,32 @@ public class MoveTest {
         MoveTransition t2 = board.currentPlayer().makeMove(Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("A5"), BoardUtility.getCoordinateFromNotation("B6")));
         assertFalse(t2.getMoveStatus().isDone());
     } 
+
+    @Test
+    public void testPackedMoveFields() {
+        int move = PackedMove.create(12, 3, BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.PAWN), BitBoard.pieceIndex(BitBoard.BLACK, BitBoard.QUEEN), BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.QUEEN), PackedMove.PROMOTION);
+        assertTrue(PackedMove.getFrom(move) == 12);
+        assertTrue(PackedMove.getTo(move) == 3);
+        assertTrue(PackedMove.getMovedPiece(move) == BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.PAWN));
+        assertTrue(PackedMove.getCapturedPiece(move) == BitBoard.pieceIndex(BitBoard.BLACK, BitBoard.QUEEN));
+        assertTrue(PackedMove.getPromotionPiece(move) == BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.QUEEN));
+        assertTrue(PackedMove.isCapture(move));
+        assertTrue(PackedMove.isPromotion(move));
+        
+        int quiet = PackedMove.create(62, 45, BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.KNIGHT), BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.QUIET);
+        assertFalse(PackedMove.isCapture(quiet));
+        assertTrue(PackedMove.getPromotionPiece(quiet) == BitBoard.NO_PIECE);
+        assertEquals("G1-F3", PackedMove.toString(quiet));
+    }
+    
+    @Test
+    public void testPackedMoveBridge() {
+        board = Board.createStandardBoard();
+        Move move = Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation("E2"), BoardUtility.getCoordinateFromNotation("E4"));
+        int packed = PackedMove.fromMove(move);
+        assertTrue(PackedMove.getFlag(packed) == PackedMove.DOUBLE_PAWN_PUSH);
+        assertTrue(PackedMove.getMovedPiece(packed) == BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.PAWN));
+        assertEquals(move, PackedMove.toMove(packed, board));
+        assertEquals(Move.NULL_MOVE, PackedMove.toMove(PackedMove.NONE, board));
+    }
 }
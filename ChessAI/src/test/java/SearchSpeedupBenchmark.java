@@ -0,0 +1,65 @@
+
+import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.board.Move;
+import fi.helsinki.chessai.player.ai.MiniMax;
+import fi.helsinki.chessai.player.ai.ParallelMode;
+import fi.helsinki.chessai.utility.BoardUtility;
+
+/**
+ * Time to depth of the Young Brothers Wait search with 1, 2, 4, 8 and 16 threads.
+ * Not a unit test, run it with the test classpath: java SearchSpeedupBenchmark [depth]
+ * @author janne
+ */
+public class SearchSpeedupBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) {
+        final int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        final Board[] positions = {Board.createStandardBoard(), openingPosition()};
+        System.out.println("Cores available: " + Runtime.getRuntime().availableProcessors());
+        for (final Board position : positions) {
+            // warm up the JIT before timing
+            new MiniMax.Builder(depth - 1, true).setParallelMode(ParallelMode.YOUNG_BROTHERS_WAIT).build().execute(position);
+            long serialTime = 0;
+            for (final int threads : THREADS) {
+                final long time = timeToDepth(position, depth, threads);
+                if (threads == 1) {
+                    serialTime = time;
+                }
+                System.out.println(String.format("depth %d threads %2d: %6d ms, speedup %.2f", depth, threads, time, serialTime / (double) Math.max(1, time)));
+            }
+        }
+    }
+
+    /**
+     * Best time of a few searches to the depth.
+     * @param position
+     * @param depth
+     * @param threads
+     * @return milliseconds
+     */
+    private static long timeToDepth(final Board position, final int depth, final int threads) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            final long start = System.nanoTime();
+            new MiniMax.Builder(depth, true).setThreads(threads).setParallelMode(ParallelMode.YOUNG_BROTHERS_WAIT).build().execute(position);
+            best = Math.min(best, (System.nanoTime() - start) / 1000000);
+        }
+        return best;
+    }
+
+    /**
+     * Position after 1. e4 e5 2. Nf3 Nc6.
+     * @return
+     */
+    private static Board openingPosition() {
+        Board board = Board.createStandardBoard();
+        final String[][] moves = {{"E2", "E4"}, {"E7", "E5"}, {"G1", "F3"}, {"B8", "C6"}};
+        for (final String[] move : moves) {
+            final Move next = Move.MoveFactory.createMove(board, BoardUtility.getCoordinateFromNotation(move[0]), BoardUtility.getCoordinateFromNotation(move[1]));
+            board = board.currentPlayer().makeMove(next).getTransitionBoard();
+        }
+        return board;
+    }
+}
@@ -0,0 +1,62 @@
+import fi.helsinki.chessai.board.BitBoard;
+import fi.helsinki.chessai.board.Board;
+import fi.helsinki.chessai.board.PackedMove;
+import fi.helsinki.chessai.board.StaticExchange;
+import fi.helsinki.chessai.board.pieces.King;
+import fi.helsinki.chessai.board.pieces.Knight;
+import fi.helsinki.chessai.board.pieces.Pawn;
+import fi.helsinki.chessai.board.pieces.Queen;
+import fi.helsinki.chessai.board.pieces.Rook;
+import fi.helsinki.chessai.player.Side;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StaticExchangeTest {
+    final int whiteRook = BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.ROOK);
+    final int whiteQueen = BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.QUEEN);
+    final int blackPawn = BitBoard.pieceIndex(BitBoard.BLACK, BitBoard.PAWN);
+    final int blackKnight = BitBoard.pieceIndex(BitBoard.BLACK, BitBoard.KNIGHT);
+    final int[] gain = new int[StaticExchange.MAX_EXCHANGE];
+    Board.Builder builder;
+
+    @Before
+    public void setUp() {
+        builder = new Board.Builder();
+        builder.setPiece(new King(63, Side.WHITE, false, false));
+        builder.setPiece(new King(7, Side.BLACK, false, false));
+        builder.setMoveMaker(Side.WHITE);
+    }
+
+    @Test
+    public void testUndefendedPieceIsWon() {
+        builder.setPiece(new Rook(60, Side.WHITE, false));
+        builder.setPiece(new Pawn(28, Side.BLACK, false));
+        BitBoard position = BitBoard.fromBoard(builder.build());
+        int move = PackedMove.create(60, 28, whiteRook, blackPawn, BitBoard.NO_PIECE, PackedMove.QUIET);
+        assertTrue(StaticExchange.evaluate(position, move, gain) == 100);
+        assertTrue(!StaticExchange.isLosingCapture(position, move, gain));
+    }
+
+    @Test
+    public void testQueenTakingDefendedPawnLoses() {
+        builder.setPiece(new Queen(59, Side.WHITE, false));
+        builder.setPiece(new Pawn(27, Side.BLACK, false));
+        builder.setPiece(new Pawn(20, Side.BLACK, false));
+        BitBoard position = BitBoard.fromBoard(builder.build());
+        int move = PackedMove.create(59, 27, whiteQueen, blackPawn, BitBoard.NO_PIECE, PackedMove.QUIET);
+        assertTrue(StaticExchange.evaluate(position, move, gain) == -800);
+        assertTrue(StaticExchange.isLosingCapture(position, move, gain));
+    }
+
+    @Test
+    public void testXRayAttackerJoinsExchange() {
+        builder.setPiece(new Rook(60, Side.WHITE, false));
+        builder.setPiece(new Rook(52, Side.WHITE, false));
+        builder.setPiece(new Knight(28, Side.BLACK, false));
+        builder.setPiece(new Rook(4, Side.BLACK, false));
+        BitBoard position = BitBoard.fromBoard(builder.build());
+        int move = PackedMove.create(52, 28, whiteRook, blackKnight, BitBoard.NO_PIECE, PackedMove.QUIET);
+        assertTrue(StaticExchange.evaluate(position, move, gain) == 300);
+    }
+}
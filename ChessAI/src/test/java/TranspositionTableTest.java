@@ -0,0 +1,46 @@
+
+import fi.helsinki.chessai.board.BitBoard;
+import fi.helsinki.chessai.board.PackedMove;
+import fi.helsinki.chessai.player.ai.TranspositionTable;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = PackedMove.create(52, 36, BitBoard.PAWN, BitBoard.NO_PIECE, BitBoard.NO_PIECE, PackedMove.DOUBLE_PAWN_PUSH);
+        table.store(123456789L, move, 5, -250, TranspositionTable.LOWER_BOUND);
+        long data = table.probe(123456789L);
+        assertTrue(data != TranspositionTable.NO_ENTRY);
+        assertTrue(TranspositionTable.getScore(data) == -250);
+        assertTrue(TranspositionTable.getDepth(data) == 5);
+        assertTrue(TranspositionTable.getBound(data) == TranspositionTable.LOWER_BOUND);
+        assertTrue(TranspositionTable.sameMove(move, TranspositionTable.getMove(data)));
+        assertTrue(table.probe(987654321L) == TranspositionTable.NO_ENTRY);
+    }
+
+    @Test
+    public void testSizeInMegabytes() {
+        assertTrue(new TranspositionTable(1).getBucketCount() == 1 << 15);
+        assertTrue(new TranspositionTable(3).getBucketCount() == 1 << 16);
+    }
+
+    @Test
+    public void testDeepEntryIsKeptAndNewEntryReplaces() {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.getBucketCount();
+        long deep = 5;
+        long shallow = deep + buckets;
+        long newest = deep + 2 * buckets;
+        table.store(deep, PackedMove.NONE, 6, 10, TranspositionTable.EXACT);
+        table.store(shallow, PackedMove.NONE, 2, 20, TranspositionTable.EXACT);
+        table.store(newest, PackedMove.NONE, 1, 30, TranspositionTable.EXACT);
+        assertTrue(TranspositionTable.getScore(table.probe(deep)) == 10);
+        assertTrue(table.probe(shallow) == TranspositionTable.NO_ENTRY);
+        assertTrue(TranspositionTable.getScore(table.probe(newest)) == 30);
+        table.clear();
+        assertTrue(table.probe(deep) == TranspositionTable.NO_ENTRY);
+    }
+}
@@ -1,5 +1,8 @@
 
+import fi.helsinki.chessai.utility.AttackTables;
 import fi.helsinki.chessai.utility.BoardUtility;
+import fi.helsinki.chessai.utility.MagicBitboards;
+import java.util.Random;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -26,4 +29,50 @@ public class UtilityTest {
         assertEquals(BoardUtility.getNotationFromCoodinate(6), "G8");
         assertEquals(BoardUtility.getNotationFromCoodinate(7), "H8");
     }
+    
+    @Test
+    public void testAttackTables() {
+        assertTrue(Long.bitCount(AttackTables.KNIGHT_ATTACKS[0]) == 2);
+        assertTrue(Long.bitCount(AttackTables.KNIGHT_ATTACKS[BoardUtility.getCoordinateFromNotation("D4")]) == 8);
+        assertTrue(Long.bitCount(AttackTables.KING_ATTACKS[63]) == 3);
+        assertTrue(Long.bitCount(AttackTables.KING_ATTACKS[BoardUtility.getCoordinateFromNotation("E4")]) == 8);
+        assertTrue(AttackTables.PAWN_ATTACKS[0][BoardUtility.getCoordinateFromNotation("A2")] == 1L << BoardUtility.getCoordinateFromNotation("B3"));
+        assertTrue(AttackTables.PAWN_ATTACKS[1][BoardUtility.getCoordinateFromNotation("H7")] == 1L << BoardUtility.getCoordinateFromNotation("G6"));
+    }
+    
+    @Test
+    public void testMagicBitboardsMatchRayWalk() {
+        int[] rookVectors = {-8, -1, 1, 8};
+        int[] bishopVectors = {-9, -7, 7, 9};
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            long occupied = random.nextLong() & random.nextLong();
+            if (i == 0) {
+                occupied = 0;
+            }
+            for (int square = 0; square < 64; square++) {
+                assertTrue(MagicBitboards.rookAttacks(square, occupied) == rayWalk(square, occupied, rookVectors));
+                assertTrue(MagicBitboards.bishopAttacks(square, occupied) == rayWalk(square, occupied, bishopVectors));
+                assertTrue(MagicBitboards.queenAttacks(square, occupied) == (rayWalk(square, occupied, rookVectors) | rayWalk(square, occupied, bishopVectors)));
+            }
+        }
+    }
+    
+    /**
+     * Attacks walked one tile at a time the way the pieces used to generate their moves.
+     */
+    private static long rayWalk(int square, long occupied, int[] vectors) {
+        long attacks = 0;
+        for (int offset : vectors) {
+            int destination = square + offset;
+            while (BoardUtility.isValidTile(destination) && !BoardUtility.isOutOfBounds(destination - offset, destination, 1)) {
+                attacks |= 1L << destination;
+                if ((occupied & (1L << destination)) != 0) {
+                    break;
+                }
+                destination += offset;
+            }
+        }
+        return attacks;
+    }
 }